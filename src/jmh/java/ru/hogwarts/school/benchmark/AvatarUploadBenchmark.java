@@ -0,0 +1,151 @@
+package ru.hogwarts.school.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.multipart.MultipartFile;
+import ru.hogwarts.school.model.Student;
+import ru.hogwarts.school.repository.AvatarRepository;
+import ru.hogwarts.school.service.AvatarCache;
+import ru.hogwarts.school.service.AvatarService;
+import ru.hogwarts.school.service.AvatarThumbnailService;
+import ru.hogwarts.school.service.StudentService;
+import ru.hogwarts.school.storage.AvatarStorage;
+import ru.hogwarts.school.storage.FileSystemAvatarStorage;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static java.nio.file.StandardOpenOption.CREATE_NEW;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Compares the old double-read upload path with {@link AvatarService#uploadAvatar} for several file sizes.
+ * Run with {@code -prof gc} to see the bytes allocated per upload.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AvatarUploadBenchmark {
+
+    @Param({"65536", "1048576", "8388608"})
+    private int fileSize;
+
+    private Path avatarsDir;
+    private Student student;
+    private MultipartFile file;
+    private AvatarService avatarService;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        avatarsDir = Files.createTempDirectory("avatars-benchmark");
+        student = new Student(1L, "Harry", 17);
+
+        StudentService studentService = mock(StudentService.class);
+        when(studentService.findStudent(anyLong())).thenReturn(student);
+        AvatarRepository avatarRepository = mock(AvatarRepository.class);
+        when(avatarRepository.findByStudentId(anyLong())).thenReturn(Optional.empty());
+
+        AvatarStorage avatarStorage = new FileSystemAvatarStorage(avatarsDir.toString(), avatarRepository);
+        AvatarThumbnailService thumbnailService = new AvatarThumbnailService(avatarStorage, new int[]{64, 128, 256}, 1, 16);
+        avatarService = new AvatarService(avatarRepository, studentService, thumbnailService, avatarStorage,
+                new AvatarCache(1024 * 1024, 64 * 1024));
+        ReflectionTestUtils.setField(avatarService, "inlineMaxSize", 256 * 1024);
+
+        byte[] content = new byte[fileSize];
+        new Random(fileSize).nextBytes(content);
+        Path part = avatarsDir.resolve("part-" + fileSize);
+        Files.write(part, content);
+        file = new DiskMultipartFile(part);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(avatarsDir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public void legacyUpload() throws IOException {
+        Path filePath = avatarsDir.resolve("legacy-" + student.getId() + ".png");
+        Files.deleteIfExists(filePath);
+        try (
+                InputStream is = file.getInputStream();
+                OutputStream os = Files.newOutputStream(filePath, CREATE_NEW);
+                BufferedInputStream bis = new BufferedInputStream(is, 1024);
+                BufferedOutputStream bos = new BufferedOutputStream(os, 1024);
+        ) {
+            bis.transferTo(bos);
+        }
+        byte[] data = file.getBytes();
+        if (data.length != file.getSize()) {
+            throw new IllegalStateException();
+        }
+    }
+
+    @Benchmark
+    public void streamingUpload() throws IOException {
+        avatarService.uploadAvatar(student.getId(), file);
+    }
+
+    /**
+     * Mirrors how Tomcat hands over multipart parts: already spooled to a temporary file.
+     */
+    private record DiskMultipartFile(Path path) implements MultipartFile {
+
+        @Override
+        public String getName() {
+            return "cover";
+        }
+
+        @Override
+        public String getOriginalFilename() {
+            return "avatar.png";
+        }
+
+        @Override
+        public String getContentType() {
+            return "image/png";
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return getSize() == 0;
+        }
+
+        @Override
+        public long getSize() {
+            try {
+                return Files.size(path);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public byte[] getBytes() throws IOException {
+            return Files.readAllBytes(path);
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return Files.newInputStream(path);
+        }
+
+        @Override
+        public void transferTo(File dest) throws IOException {
+            Files.copy(path, dest.toPath());
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package ru.hogwarts.school.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.hogwarts.school.SchoolApplication;
+import ru.hogwarts.school.dto.LookupResult;
+import ru.hogwarts.school.dto.SearchHit;
+import ru.hogwarts.school.dto.StudentFacultyView;
+import ru.hogwarts.school.model.Faculty;
+import ru.hogwarts.school.model.Student;
+import ru.hogwarts.school.repository.FacultyRepository;
+import ru.hogwarts.school.repository.StudentRepository;
+import ru.hogwarts.school.service.FacultyService;
+import ru.hogwarts.school.service.StudentService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link StudentService} and {@link FacultyService} lookups in a full application context on the H2
+ * database configured for the tests.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EntityLookupBenchmark {
+
+    private static final String[] FACULTIES = {"Gryffindor", "Hufflepuff", "Ravenclaw", "Slytherin"};
+    private static final String[] COLORS = {"red", "yellow", "blue", "green"};
+
+    @Param({"10000"})
+    private int studentCount;
+
+    private ConfigurableApplicationContext context;
+    private StudentService studentService;
+    private FacultyService facultyService;
+    private List<Long> studentIds;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(SchoolApplication.class)
+                .web(WebApplicationType.NONE)
+                .logStartupInfo(false)
+                .properties("spring.jpa.show-sql=false")
+                .run();
+        studentService = context.getBean(StudentService.class);
+        facultyService = context.getBean(FacultyService.class);
+        FacultyRepository facultyRepository = context.getBean(FacultyRepository.class);
+        StudentRepository studentRepository = context.getBean(StudentRepository.class);
+
+        List<Faculty> faculties = new ArrayList<>();
+        for (int i = 0; i < FACULTIES.length; i++) {
+            faculties.add(facultyRepository.save(new Faculty(FACULTIES[i], COLORS[i])));
+        }
+        studentIds = new ArrayList<>(studentCount);
+        List<Student> chunk = new ArrayList<>();
+        for (int i = 0; i < studentCount; i++) {
+            Student student = new Student("Student " + i, 16 + i % 10);
+            student.setFaculty(faculties.get(i % faculties.size()));
+            chunk.add(student);
+            if (chunk.size() == 1000 || i == studentCount - 1) {
+                studentRepository.saveAll(chunk).forEach(saved -> studentIds.add(saved.getId()));
+                chunk.clear();
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Student findStudentCached() {
+        return studentService.findStudent(randomId());
+    }
+
+    @Benchmark
+    public Optional<StudentFacultyView> findStudentView() {
+        return studentService.findStudentView(randomId());
+    }
+
+    @Benchmark
+    public LookupResult<Student> lookupHundredStudents() {
+        List<Long> ids = new ArrayList<>(100);
+        for (int i = 0; i < 100; i++) {
+            ids.add(randomId());
+        }
+        return studentService.lookupStudents(ids);
+    }
+
+    @Benchmark
+    public List<SearchHit> searchStudents() {
+        return studentService.searchByName("nt 12", 20);
+    }
+
+    @Benchmark
+    public Faculty findFaculty() {
+        return facultyService.findFaculty(facultyService.findByNameOrColor("ravenclaw", null).get(0).getId());
+    }
+
+    @Benchmark
+    public List<Faculty> findFacultiesByNameOrColor() {
+        return facultyService.findByNameOrColor("Slytherin", "red");
+    }
+
+    private long randomId() {
+        return studentIds.get(ThreadLocalRandom.current().nextInt(studentIds.size()));
+    }
+}
@@ -0,0 +1,75 @@
+package ru.hogwarts.school.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import ru.hogwarts.school.dto.AvatarInfo;
+import ru.hogwarts.school.model.Avatar;
+import ru.hogwarts.school.model.Faculty;
+import ru.hogwarts.school.model.Student;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+/**
+ * Jackson serialization of the entities and DTOs the controllers return, with the object mapper
+ * configured the way Spring Boot configures it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonSerializationBenchmark {
+
+    private ObjectMapper objectMapper;
+    private Student student;
+    private Faculty faculty;
+    private Avatar avatar;
+    private AvatarInfo avatarInfo;
+    private List<Student> students;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        faculty = new Faculty(1L, "Gryffindor", "red");
+        student = new Student(1L, "Harry Potter", 17);
+        student.setFaculty(faculty);
+        byte[] data = new byte[4096];
+        new Random(1).nextBytes(data);
+        avatar = new Avatar(1L, "/avatars/1.png", data.length, "image/png", data, student);
+        avatarInfo = new AvatarInfo(1L, 1L, "image/png", (long) data.length);
+        students = LongStream.rangeClosed(1, 100)
+                .mapToObj(id -> new Student(id, "Student " + id, 16 + (int) (id % 10)))
+                .toList();
+    }
+
+    @Benchmark
+    public byte[] student() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(student);
+    }
+
+    @Benchmark
+    public byte[] faculty() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(faculty);
+    }
+
+    @Benchmark
+    public byte[] avatar() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(avatar);
+    }
+
+    @Benchmark
+    public byte[] avatarInfo() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(avatarInfo);
+    }
+
+    @Benchmark
+    public byte[] hundredStudents() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(students);
+    }
+}
@@ -0,0 +1,273 @@
+package ru.hogwarts.school.load;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import ru.hogwarts.school.model.Faculty;
+import ru.hogwarts.school.model.Student;
+import ru.hogwarts.school.service.StudentService;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+
+/**
+ * Drives a weighted mix of reads, writes and avatar uploads and downloads against the application on
+ * H2, records the latency of every endpoint in an HDR histogram and fails when an endpoint's p99
+ * exceeds its budget or any request fails.
+ * <p>
+ * Run with {@code mvn -Pload-test test}. Tuned with system properties: {@code load.concurrency},
+ * {@code load.warmup}, {@code load.duration} (ISO-8601 durations), {@code load.budget.p99} and
+ * {@code load.budget.p99.<endpoint>} (milliseconds). Percentile distributions are written to
+ * {@code target/load-test}.
+ */
+@Tag("load")
+@SpringBootTest(webEnvironment = RANDOM_PORT, properties = {
+        "path.to.avatars.folder=${java.io.tmpdir}/school-load-test/avatars",
+        "spring.jpa.show-sql=false"
+})
+public class MixedWorkloadLoadTest {
+
+    private static final int STUDENTS = 500;
+    private static final int FACULTIES = 5;
+    private static final int STUDENTS_WITH_FACULTY = 400;
+    private static final int STUDENTS_WITH_AVATARS = 50;
+    private static final int AVATAR_SIZE = 64 * 1024;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private StudentService studentService;
+
+    private final AtomicLong nameSequence = new AtomicLong();
+    private final byte[] avatar = new byte[AVATAR_SIZE];
+    private List<Faculty> faculties;
+    private List<Long> studentIds;
+
+    @BeforeEach
+    public void seed() {
+        new Random(1).nextBytes(avatar);
+        faculties = IntStream.range(0, FACULTIES)
+                .mapToObj(i -> restTemplate.postForObject("/faculty", new Faculty(uniqueName(), "grey"), Faculty.class))
+                .toList();
+        // The student JSON does not carry a faculty, so students are seeded through the service; the
+        // ones without a faculty are the ones edited, since an edit over HTTP clears the faculty
+        studentIds = IntStream.range(0, STUDENTS)
+                .mapToObj(i -> {
+                    Student student = new Student(uniqueName(), 16 + i % 10);
+                    if (i < STUDENTS_WITH_FACULTY) {
+                        student.setFaculty(faculties.get(i % FACULTIES));
+                    }
+                    return studentService.createStudent(student).getId();
+                })
+                .toList();
+        for (Long id : studentIds.subList(0, STUDENTS_WITH_AVATARS)) {
+            assertThat(uploadAvatar(id).is2xxSuccessful()).isTrue();
+        }
+    }
+
+    @Test
+    void mixedWorkloadStaysWithinLatencyBudget() throws Exception {
+        int concurrency = Integer.getInteger("load.concurrency", 16);
+        Duration warmup = Duration.parse(System.getProperty("load.warmup", "PT5S"));
+        Duration duration = Duration.parse(System.getProperty("load.duration", "PT30S"));
+        List<Operation> operations = List.of(
+                new Operation("student-get", 30, () -> get("/student/" + randomStudent())),
+                new Operation("student-view", 10, () -> get("/student/" + randomStudent() + "/view")),
+                new Operation("student-multi-get", 5, () -> get("/student?ids=" + randomStudents(20))),
+                new Operation("student-search", 5, () -> get("/student/search?q=load-1")),
+                new Operation("faculty-get", 10, () -> get("/faculty/" + randomFaculty())),
+                new Operation("faculty-stats", 5, () -> get("/faculty/stats")),
+                new Operation("faculty-roster", 5, () -> get("/faculty/" + randomFaculty() + "/roster?sort=age")),
+                new Operation("faculty-students", 3, () -> get("/faculty/" + randomFaculty() + "/student")),
+                new Operation("student-create", 10, () -> restTemplate.postForEntity("/student",
+                        new Student(uniqueName(), 18), Student.class).getStatusCode()),
+                new Operation("student-edit", 5, () -> restTemplate.exchange("/student", HttpMethod.PUT,
+                        new HttpEntity<>(new Student(randomStudentWithoutFaculty(), uniqueName(), 19)), Student.class).getStatusCode()),
+                new Operation("avatar-upload", 5, () -> uploadAvatar(randomStudentWithAvatar())),
+                new Operation("avatar-download", 15, () -> restTemplate.getForEntity(
+                        "/avatar/" + randomStudentWithAvatar() + "/avatar/preview-avatar-file", byte[].class).getStatusCode())
+        );
+
+        run(operations, concurrency, warmup, false);
+        operations.forEach(Operation::reset);
+        run(operations, concurrency, duration, true);
+
+        report(operations, duration);
+        long defaultBudget = Long.getLong("load.budget.p99", 500);
+        List<String> violations = new ArrayList<>();
+        for (Operation operation : operations) {
+            long budgetMillis = Long.getLong("load.budget.p99." + operation.name, defaultBudget);
+            double p99Millis = operation.latencies.getValueAtPercentile(99) / 1e6;
+            if (p99Millis > budgetMillis) {
+                violations.add(String.format("%s p99 %.1f ms > %d ms", operation.name, p99Millis, budgetMillis));
+            }
+            if (operation.errors.sum() > 0) {
+                violations.add(operation.name + " failed " + operation.errors.sum() + " times");
+            }
+        }
+        assertThat(violations).isEmpty();
+    }
+
+    private void run(List<Operation> operations, int concurrency, Duration duration, boolean record) throws Exception {
+        int totalWeight = operations.stream().mapToInt(operation -> operation.weight).sum();
+        long deadline = System.nanoTime() + duration.toNanos();
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < concurrency; i++) {
+                futures.add(workers.submit(() -> {
+                    while (System.nanoTime() < deadline) {
+                        Operation operation = pick(operations, totalWeight);
+                        long start = System.nanoTime();
+                        boolean success;
+                        try {
+                            success = operation.request.get().is2xxSuccessful();
+                        } catch (RuntimeException e) {
+                            success = false;
+                        }
+                        long latency = System.nanoTime() - start;
+                        if (record) {
+                            operation.latencies.recordValue(latency);
+                            if (!success) {
+                                operation.errors.increment();
+                            }
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    private static Operation pick(List<Operation> operations, int totalWeight) {
+        int ticket = ThreadLocalRandom.current().nextInt(totalWeight);
+        for (Operation operation : operations) {
+            ticket -= operation.weight;
+            if (ticket < 0) {
+                return operation;
+            }
+        }
+        return operations.get(operations.size() - 1);
+    }
+
+    private static void report(List<Operation> operations, Duration duration) throws IOException {
+        Path reportDir = Path.of("target", "load-test");
+        Files.createDirectories(reportDir);
+        System.out.printf("%-20s %9s %9s %9s %9s %9s %9s %9s%n",
+                "endpoint", "requests", "req/s", "p50 ms", "p95 ms", "p99 ms", "p999 ms", "max ms");
+        for (Operation operation : operations) {
+            Histogram latencies = operation.latencies;
+            System.out.printf("%-20s %9d %9.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                    operation.name, latencies.getTotalCount(),
+                    latencies.getTotalCount() / (duration.toNanos() / 1e9),
+                    latencies.getValueAtPercentile(50) / 1e6, latencies.getValueAtPercentile(95) / 1e6,
+                    latencies.getValueAtPercentile(99) / 1e6, latencies.getValueAtPercentile(99.9) / 1e6,
+                    latencies.getMaxValue() / 1e6);
+            try (PrintStream out = new PrintStream(Files.newOutputStream(reportDir.resolve(operation.name + ".hgrm")))) {
+                latencies.outputPercentileDistribution(out, 1e6);
+            }
+        }
+    }
+
+    private HttpStatusCode get(String url) {
+        return restTemplate.getForEntity(url, String.class).getStatusCode();
+    }
+
+    private HttpStatusCode uploadAvatar(long studentId) {
+        HttpHeaders partHeaders = new HttpHeaders();
+        partHeaders.setContentType(MediaType.IMAGE_PNG);
+        MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
+        body.add("cover", new HttpEntity<>(new ByteArrayResource(avatar) {
+            @Override
+            public String getFilename() {
+                return "avatar.png";
+            }
+        }, partHeaders));
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.MULTIPART_FORM_DATA);
+        return restTemplate.postForEntity("/avatar/" + studentId + "/avatar", new HttpEntity<>(body, headers), String.class)
+                .getStatusCode();
+    }
+
+    private String uniqueName() {
+        return "load-" + nameSequence.incrementAndGet() + "-" + System.nanoTime();
+    }
+
+    private long randomStudent() {
+        return studentIds.get(ThreadLocalRandom.current().nextInt(studentIds.size()));
+    }
+
+    private long randomStudentWithoutFaculty() {
+        return studentIds.get(STUDENTS_WITH_FACULTY + ThreadLocalRandom.current().nextInt(STUDENTS - STUDENTS_WITH_FACULTY));
+    }
+
+    private long randomFaculty() {
+        return faculties.get(ThreadLocalRandom.current().nextInt(FACULTIES)).getId();
+    }
+
+    private long randomStudentWithAvatar() {
+        return studentIds.get(ThreadLocalRandom.current().nextInt(STUDENTS_WITH_AVATARS));
+    }
+
+    private String randomStudents(int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> String.valueOf(randomStudent()))
+                .collect(Collectors.joining(","));
+    }
+
+    private static final class Operation {
+
+        private final String name;
+        private final int weight;
+        private final Supplier<HttpStatusCode> request;
+        private final Histogram latencies = new ConcurrentHistogram(3);
+        private final LongAdder errors = new LongAdder();
+
+        Operation(String name, int weight, Supplier<HttpStatusCode> request) {
+            this.name = name;
+            this.weight = weight;
+            this.request = request;
+        }
+
+        void reset() {
+            latencies.reset();
+            errors.reset();
+        }
+    }
+}
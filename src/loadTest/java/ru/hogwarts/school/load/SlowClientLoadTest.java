@@ -0,0 +1,224 @@
+package ru.hogwarts.school.load;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import ru.hogwarts.school.model.Student;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+
+/**
+ * Measures the latency of fast student reads while slow clients download an avatar a few bytes at a
+ * time and hold their request threads, and fails when the p99 of the reads exceeds its budget or any
+ * read fails. Run it once as is and once with the {@code virtual-threads} Spring profile to compare
+ * the platform and virtual thread pools.
+ * <p>
+ * Run with {@code mvn -Pload-test test -Dtest=SlowClientLoadTest}, adding {@code -Pjava21
+ * -Dspring.profiles.active=virtual-threads} for virtual threads. Tuned with system properties:
+ * {@code load.slow-clients}, {@code load.fast-clients}, {@code load.warmup}, {@code load.duration}
+ * (ISO-8601 durations) and {@code load.budget.p99.slow-client-reads} (milliseconds). The percentile
+ * distribution is written to {@code target/load-test}.
+ */
+@Tag("load")
+@SpringBootTest(webEnvironment = RANDOM_PORT, properties = {
+        "path.to.avatars.folder=${java.io.tmpdir}/school-load-test/avatars",
+        "spring.jpa.show-sql=false"
+})
+public class SlowClientLoadTest {
+
+    private static final String NAME = "slow-client-reads";
+    private static final int AVATAR_SIZE = 4 * 1024 * 1024;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @LocalServerPort
+    private int port;
+
+    private long studentId;
+
+    @BeforeEach
+    public void seed() {
+        Student student = restTemplate.postForObject("/student",
+                new Student("slow-client-" + System.nanoTime(), 17), Student.class);
+        studentId = student.getId();
+        byte[] avatar = new byte[AVATAR_SIZE];
+        new Random(1).nextBytes(avatar);
+        assertThat(uploadAvatar(avatar).is2xxSuccessful()).isTrue();
+    }
+
+    @Test
+    void fastReadsStayWithinLatencyBudgetNextToSlowDownloads() throws Exception {
+        int slowClients = Integer.getInteger("load.slow-clients", 300);
+        int fastClients = Integer.getInteger("load.fast-clients", 16);
+        Duration warmup = Duration.parse(System.getProperty("load.warmup", "PT2S"));
+        Duration duration = Duration.parse(System.getProperty("load.duration", "PT30S"));
+        URI baseUri = URI.create("http://localhost:" + port);
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        ExecutorService slow = Executors.newFixedThreadPool(slowClients);
+        try {
+            for (int i = 0; i < slowClients; i++) {
+                slow.execute(() -> slowDownloads(baseUri, running));
+            }
+            Thread.sleep(warmup.toMillis());
+            Histogram latencies = new ConcurrentHistogram(3);
+            LongAdder errors = new LongAdder();
+            fastReads(baseUri.resolve("/student/" + studentId), fastClients, duration, latencies, errors);
+
+            report(slowClients, fastClients, duration, latencies, errors);
+            long budgetMillis = Long.getLong("load.budget.p99." + NAME, Long.getLong("load.budget.p99", 500));
+            List<String> violations = new ArrayList<>();
+            double p99Millis = latencies.getValueAtPercentile(99) / 1e6;
+            if (p99Millis > budgetMillis) {
+                violations.add(String.format("%s p99 %.1f ms > %d ms", NAME, p99Millis, budgetMillis));
+            }
+            if (errors.sum() > 0) {
+                violations.add(NAME + " failed " + errors.sum() + " times");
+            }
+            assertThat(latencies.getTotalCount()).isPositive();
+            assertThat(violations).isEmpty();
+        } finally {
+            running.set(false);
+            slow.shutdownNow();
+        }
+    }
+
+    private static void fastReads(URI uri, int clients, Duration duration, Histogram latencies, LongAdder errors)
+            throws Exception {
+        HttpClient httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+        HttpRequest request = HttpRequest.newBuilder(uri).timeout(Duration.ofSeconds(30)).build();
+        long deadline = System.nanoTime() + duration.toNanos();
+        ExecutorService workers = Executors.newFixedThreadPool(clients);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < clients; i++) {
+                futures.add(workers.submit(() -> {
+                    while (System.nanoTime() < deadline) {
+                        long start = System.nanoTime();
+                        boolean success;
+                        try {
+                            success = httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200;
+                        } catch (IOException e) {
+                            success = false;
+                        }
+                        latencies.recordValue(System.nanoTime() - start);
+                        if (!success) {
+                            errors.increment();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    private void slowDownloads(URI baseUri, AtomicBoolean running) {
+        while (running.get()) {
+            try (Socket socket = new Socket(baseUri.getHost(), baseUri.getPort())) {
+                socket.setReceiveBufferSize(1024);
+                OutputStream os = socket.getOutputStream();
+                os.write(("GET /avatar/" + studentId + "/avatar/preview-avatar-file HTTP/1.1\r\nHost: "
+                        + baseUri.getHost() + "\r\nConnection: close\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+                os.flush();
+                InputStream is = socket.getInputStream();
+                byte[] buffer = new byte[64];
+                while (running.get() && is.read(buffer) >= 0) {
+                    Thread.sleep(50);
+                }
+            } catch (IOException e) {
+                if (!sleepQuietly()) {
+                    return;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private static void report(int slowClients, int fastClients, Duration duration, Histogram latencies,
+                               LongAdder errors) throws IOException {
+        Path reportDir = Path.of("target", "load-test");
+        Files.createDirectories(reportDir);
+        System.out.printf("slow clients %d, fast clients %d, %s%n", slowClients, fastClients, duration);
+        System.out.printf("%-20s %9s %9s %9s %9s %9s %9s %9s %9s%n",
+                "endpoint", "requests", "failures", "req/s", "p50 ms", "p95 ms", "p99 ms", "p999 ms", "max ms");
+        System.out.printf("%-20s %9d %9d %9.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                NAME, latencies.getTotalCount(), errors.sum(),
+                latencies.getTotalCount() / (duration.toNanos() / 1e9),
+                latencies.getValueAtPercentile(50) / 1e6, latencies.getValueAtPercentile(95) / 1e6,
+                latencies.getValueAtPercentile(99) / 1e6, latencies.getValueAtPercentile(99.9) / 1e6,
+                latencies.getMaxValue() / 1e6);
+        try (PrintStream out = new PrintStream(Files.newOutputStream(reportDir.resolve(NAME + ".hgrm")))) {
+            latencies.outputPercentileDistribution(out, 1e6);
+        }
+    }
+
+    private HttpStatusCode uploadAvatar(byte[] avatar) {
+        HttpHeaders partHeaders = new HttpHeaders();
+        partHeaders.setContentType(MediaType.IMAGE_PNG);
+        MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
+        body.add("cover", new HttpEntity<>(new ByteArrayResource(avatar) {
+            @Override
+            public String getFilename() {
+                return "avatar.png";
+            }
+        }, partHeaders));
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.MULTIPART_FORM_DATA);
+        return restTemplate.postForEntity("/avatar/" + studentId + "/avatar", new HttpEntity<>(body, headers), String.class)
+                .getStatusCode();
+    }
+
+    private static boolean sleepQuietly() {
+        try {
+            Thread.sleep(100);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
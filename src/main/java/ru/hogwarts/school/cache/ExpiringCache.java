@@ -0,0 +1,190 @@
+package ru.hogwarts.school.cache;
+
+import org.springframework.cache.support.AbstractValueAdaptingCache;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory cache with a time to live and a maximum size, evicting the least recently used entry.
+ * <p>
+ * Concurrent misses for the same key share a single load. {@code null} results are not cached.
+ * Evictions made inside a transaction are repeated after it commits, and a load that overlaps an
+ * eviction is returned to its caller but not cached, so a value read before a commit does not
+ * outlive it.
+ */
+public class ExpiringCache extends AbstractValueAdaptingCache {
+
+    private final String name;
+    private final long ttlNanos;
+    private final int maxSize;
+    private final LinkedHashMap<Object, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private final Map<Object, CompletableFuture<Object>> loading = new ConcurrentHashMap<>();
+    private final AtomicLong invalidations = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public ExpiringCache(String name, Duration ttl, int maxSize) {
+        super(false);
+        this.name = name;
+        this.ttlNanos = ttl.toNanos();
+        this.maxSize = maxSize;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return entries;
+    }
+
+    @Override
+    protected Object lookup(Object key) {
+        Object value = peek(key);
+        if (value == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        Object cached = lookup(key);
+        if (cached != null) {
+            return (T) fromStoreValue(cached);
+        }
+        CompletableFuture<Object> load = new CompletableFuture<>();
+        CompletableFuture<Object> running = loading.putIfAbsent(key, load);
+        if (running != null) {
+            return (T) await(running, key, valueLoader);
+        }
+        try {
+            cached = peek(key);
+            if (cached != null) {
+                load.complete(cached);
+                return (T) fromStoreValue(cached);
+            }
+            long invalidationsBefore = invalidations.get();
+            T value = valueLoader.call();
+            loads.increment();
+            if (value != null && invalidations.get() == invalidationsBefore) {
+                store(key, value);
+            }
+            load.complete(value);
+            return value;
+        } catch (Exception e) {
+            load.completeExceptionally(e);
+            throw new ValueRetrievalException(key, valueLoader, e);
+        } finally {
+            loading.remove(key, load);
+        }
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        if (value != null) {
+            store(key, value);
+        }
+    }
+
+    @Override
+    public void evict(Object key) {
+        invalidate(() -> {
+            synchronized (entries) {
+                entries.remove(key);
+            }
+        });
+    }
+
+    @Override
+    public void clear() {
+        invalidate(() -> {
+            synchronized (entries) {
+                entries.clear();
+            }
+        });
+    }
+
+    public Stats stats() {
+        int size;
+        synchronized (entries) {
+            size = entries.size();
+        }
+        return new Stats(name, hits.sum(), misses.sum(), loads.sum(), evictions.sum(), size, maxSize);
+    }
+
+    private Object peek(Object key) {
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.expiresAt() - System.nanoTime() <= 0) {
+                entries.remove(key);
+                return null;
+            }
+            return entry.value();
+        }
+    }
+
+    private void store(Object key, Object value) {
+        synchronized (entries) {
+            entries.put(key, new Entry(value, System.nanoTime() + ttlNanos));
+            Iterator<Entry> eldest = entries.values().iterator();
+            while (entries.size() > maxSize && eldest.hasNext()) {
+                eldest.next();
+                eldest.remove();
+                evictions.increment();
+            }
+        }
+    }
+
+    private void invalidate(Runnable removal) {
+        invalidations.incrementAndGet();
+        removal.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidations.incrementAndGet();
+                    removal.run();
+                }
+            });
+        }
+    }
+
+    private Object await(CompletableFuture<Object> load, Object key, Callable<?> valueLoader) {
+        try {
+            return load.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ValueRetrievalException(key, valueLoader, e);
+        } catch (ExecutionException e) {
+            throw new ValueRetrievalException(key, valueLoader, e.getCause());
+        }
+    }
+
+    private record Entry(Object value, long expiresAt) {
+    }
+
+    public record Stats(String name, long hits, long misses, long loads, long evictions, int size, int maxSize) {
+    }
+}
@@ -0,0 +1,39 @@
+package ru.hogwarts.school.cache;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Creates an {@link ExpiringCache} with the same time to live and size limit for every cache name.
+ */
+public class ExpiringCacheManager implements CacheManager {
+
+    private final Duration ttl;
+    private final int maxSize;
+    private final Map<String, ExpiringCache> caches = new ConcurrentHashMap<>();
+
+    public ExpiringCacheManager(Duration ttl, int maxSize) {
+        this.ttl = ttl;
+        this.maxSize = maxSize;
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        return caches.computeIfAbsent(name, cacheName -> new ExpiringCache(cacheName, ttl, maxSize));
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return List.copyOf(caches.keySet());
+    }
+
+    public List<ExpiringCache.Stats> stats() {
+        return caches.values().stream().map(ExpiringCache::stats).toList();
+    }
+}
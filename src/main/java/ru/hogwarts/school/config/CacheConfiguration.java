@@ -0,0 +1,23 @@
+package ru.hogwarts.school.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.hogwarts.school.cache.ExpiringCacheManager;
+
+import java.time.Duration;
+
+@Configuration
+@EnableCaching
+public class CacheConfiguration {
+
+    public static final String STUDENTS = "students";
+    public static final String FACULTY_STATS = "facultyStats";
+
+    @Bean
+    public ExpiringCacheManager cacheManager(@Value("${cache.entity.ttl:PT10M}") Duration ttl,
+                                             @Value("${cache.entity.max-size:10000}") int maxSize) {
+        return new ExpiringCacheManager(ttl, maxSize);
+    }
+}
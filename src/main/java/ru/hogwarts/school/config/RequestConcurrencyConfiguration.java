@@ -0,0 +1,39 @@
+package ru.hogwarts.school.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import ru.hogwarts.school.filter.ConnectionPoolLimitFilter;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * With virtual threads every request gets its own thread, so the number of requests running at once
+ * is limited here instead, in proportion to the size of the connection pool.
+ */
+@Configuration
+public class RequestConcurrencyConfiguration {
+
+    @Bean
+    @ConditionalOnThreading(Threading.VIRTUAL)
+    public FilterRegistrationBean<ConnectionPoolLimitFilter> connectionPoolLimitFilter(
+            DataSource dataSource,
+            @Value("${request-limit.requests-per-connection:2}") int requestsPerConnection,
+            @Value("${request-limit.default-pool-size:10}") int defaultPoolSize,
+            @Value("${request-limit.acquire-timeout:PT2S}") Duration acquireTimeout,
+            @Value("${request-limit.excluded-paths:}") List<String> excludedPaths) {
+        int poolSize = dataSource instanceof HikariDataSource hikari ? hikari.getMaximumPoolSize() : defaultPoolSize;
+        FilterRegistrationBean<ConnectionPoolLimitFilter> registration = new FilterRegistrationBean<>(
+                new ConnectionPoolLimitFilter(Math.max(1, poolSize * requestsPerConnection), acquireTimeout,
+                        excludedPaths));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 10);
+        return registration;
+    }
+}
@@ -1,31 +1,62 @@
 package ru.hogwarts.school.controller;
 
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import org.springframework.data.domain.PageRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import ru.hogwarts.school.dto.AvatarImportReport;
+import ru.hogwarts.school.dto.AvatarInfo;
+import ru.hogwarts.school.dto.CursorPage;
 import ru.hogwarts.school.model.Avatar;
+import ru.hogwarts.school.service.AvatarCache;
+import ru.hogwarts.school.service.AvatarImportService;
+import ru.hogwarts.school.service.AvatarPreview;
 import ru.hogwarts.school.service.AvatarService;
+import ru.hogwarts.school.storage.AvatarContent;
+import ru.hogwarts.school.storage.AvatarContentResource;
 
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
-import java.nio.file.Files;
+import java.nio.channels.Channels;
 import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.List;
+import java.util.Optional;
+import java.util.zip.ZipException;
 
 @RestController
 @RequestMapping("/avatar")
 public class AvatarController {
 
+    private static final String SENDFILE_SUPPORT_ATTRIBUTE = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME_ATTRIBUTE = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START_ATTRIBUTE = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END_ATTRIBUTE = "org.apache.tomcat.sendfile.end";
+
     private final AvatarService avatarService;
+    private final AvatarImportService avatarImportService;
+    private final CacheControl cacheControl;
 
-    public AvatarController(AvatarService avatarService) {
+    public AvatarController(AvatarService avatarService,
+                            AvatarImportService avatarImportService,
+                            @Value("${avatar.http.max-age-seconds:60}") long maxAgeSeconds) {
         this.avatarService = avatarService;
+        this.avatarImportService = avatarImportService;
+        this.cacheControl = CacheControl.maxAge(Duration.ofSeconds(maxAgeSeconds)).cachePublic().mustRevalidate();
     }
 
     @PostMapping(value = "/{id}/avatar", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
@@ -35,35 +66,147 @@ public class AvatarController {
         return ResponseEntity.ok().build();
     }
 
+    @PostMapping(value = "/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<AvatarImportReport> importAvatars(@RequestParam MultipartFile archive) throws IOException {
+        try {
+            return ResponseEntity.ok(avatarImportService.importArchive(archive));
+        } catch (ZipException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @GetMapping(value = "/{id}/avatar/preview-avatar")
-    public ResponseEntity<byte[]> downloadAvatarPreview(@PathVariable Long id) {
-        Avatar avatar = avatarService.findAvatar(id);
-        HttpHeaders httpHeaders = new HttpHeaders();
-        httpHeaders.setContentType(MediaType.parseMediaType(avatar.getMediaType()));
-        httpHeaders.setContentLength(avatar.getData().length);
-        return ResponseEntity.status(HttpStatus.OK).headers(httpHeaders).body(avatar.getData());
+    public ResponseEntity<Resource> downloadAvatarPreview(@PathVariable Long id,
+                                                          @RequestParam(required = false) Integer size) throws IOException {
+        Optional<AvatarPreview> preview = avatarService.findPreview(id, size);
+        if (preview.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        AvatarPreview avatarPreview = preview.get();
+        ResponseEntity.BodyBuilder response = cacheableResponse(avatarPreview.version(), avatarPreview.lastModified())
+                .contentType(MediaType.parseMediaType(avatarPreview.mediaType()));
+        if (avatarPreview.data() == null) {
+            Optional<Path> file = avatarPreview.content().file();
+            return response.body(file.isPresent()
+                    ? new FileSystemResource(file.get())
+                    : new AvatarContentResource(avatarPreview.content()));
+        }
+        return response.body(new ByteArrayResource(avatarPreview.data()));
     }
 
     @GetMapping(value = "/{id}/avatar/preview-avatar-file")
     public void downloadAvatarFromPreviewFile(@PathVariable Long id,
+                                              ServletWebRequest webRequest,
                                               HttpServletResponse response) throws IOException {
         Avatar avatar = avatarService.findAvatar(id);
-        Path path = Path.of(avatar.getFilePath());
-        try (
-                InputStream is = Files.newInputStream(path);
-                OutputStream os = response.getOutputStream();
-        ) {
-            response.setStatus(200);
-            response.setContentType(avatar.getMediaType());
-            response.setContentLength((int) avatar.getFileSize());
-            is.transferTo(os);
+        Optional<AvatarContent> content = avatar.getId() == null ? Optional.empty() : avatarService.openContent(avatar);
+        if (content.isEmpty()) {
+            response.sendError(HttpStatus.NOT_FOUND.value());
+            return;
         }
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl.getHeaderValue());
+        String eTag = eTag(avatar.getContentHash());
+        long lastModified = avatar.getUploadedAt() == null ? -1 : avatar.getUploadedAt().toEpochMilli();
+        if (webRequest.checkNotModified(eTag, lastModified)) {
+            return;
+        }
+
+        long fileSize = content.get().size();
+        long start = 0;
+        long end = fileSize - 1;
+        HttpServletRequest request = webRequest.getRequest();
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        if (rangeHeader != null && isRangeApplicable(request.getHeader(HttpHeaders.IF_RANGE), eTag, lastModified)) {
+            List<HttpRange> ranges;
+            try {
+                ranges = HttpRange.parseRanges(rangeHeader);
+            } catch (IllegalArgumentException e) {
+                ranges = List.of();
+            }
+            if (ranges.size() == 1) {
+                HttpRange range = ranges.get(0);
+                try {
+                    start = range.getRangeStart(fileSize);
+                    end = range.getRangeEnd(fileSize);
+                } catch (IllegalArgumentException e) {
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + fileSize);
+                    response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+                    return;
+                }
+                response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + fileSize);
+            } else {
+                response.setStatus(HttpStatus.OK.value());
+            }
+        } else {
+            response.setStatus(HttpStatus.OK.value());
+        }
+        long length = end - start + 1;
+        response.setContentType(avatar.getMediaType());
+        response.setContentLengthLong(length);
+
+        Optional<Path> file = content.get().file();
+        if (file.isPresent() && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT_ATTRIBUTE))) {
+            request.setAttribute(SENDFILE_FILENAME_ATTRIBUTE, file.get().toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START_ATTRIBUTE, start);
+            request.setAttribute(SENDFILE_END_ATTRIBUTE, end + 1);
+            return;
+        }
+        if (length > 0) {
+            content.get().transferTo(start, length, Channels.newChannel(response.getOutputStream()));
+        }
+    }
+
+    @GetMapping("/cache/stats")
+    public AvatarCache.Stats getCacheStats() {
+        return avatarService.getCacheStats();
     }
 
     @GetMapping
-    public ResponseEntity<List<Avatar>> getEveryPageAvatar(@RequestParam("page") Integer pageNumber,
-                                                           @RequestParam("size") Integer pageSize) {
-        List<Avatar> avatars = avatarService.getPaginatedAvatars(pageNumber, pageSize);
+    public ResponseEntity<List<AvatarInfo>> getEveryPageAvatar(@RequestParam("page") Integer pageNumber,
+                                                               @RequestParam("size") Integer pageSize) {
+        List<AvatarInfo> avatars = avatarService.getPaginatedAvatars(pageNumber, pageSize);
         return ResponseEntity.ok(avatars);
     }
-}
\ No newline at end of file
+
+    @GetMapping("/scroll")
+    public ResponseEntity<CursorPage<AvatarInfo>> scrollAvatars(@RequestParam(defaultValue = "0") long after,
+                                                                @RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(avatarService.scrollAvatars(after, limit));
+    }
+
+    private ResponseEntity.BodyBuilder cacheableResponse(String version, Instant lastModified) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().cacheControl(cacheControl);
+        String eTag = eTag(version);
+        if (eTag != null) {
+            response.eTag(eTag);
+        }
+        if (lastModified != null) {
+            response.lastModified(lastModified);
+        }
+        return response;
+    }
+
+    private String eTag(String version) {
+        return version == null ? null : "\"" + version + "\"";
+    }
+
+    /**
+     * A date in {@code If-Range} only validates the range when it is exactly the current {@code Last-Modified}.
+     */
+    private boolean isRangeApplicable(String ifRange, String eTag, long lastModified) {
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ifRange.equals(eTag);
+        }
+        try {
+            long since = ZonedDateTime.parse(ifRange, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+            return lastModified >= 0 && lastModified / 1000 == since / 1000;
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+}
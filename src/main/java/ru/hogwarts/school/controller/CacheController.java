@@ -0,0 +1,25 @@
+package ru.hogwarts.school.controller;
+
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import ru.hogwarts.school.cache.ExpiringCache;
+import ru.hogwarts.school.cache.ExpiringCacheManager;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("cache")
+public class CacheController {
+
+    private final ExpiringCacheManager cacheManager;
+
+    public CacheController(ExpiringCacheManager cacheManager) {
+        this.cacheManager = cacheManager;
+    }
+
+    @GetMapping("stats")
+    public List<ExpiringCache.Stats> getCacheStats() {
+        return cacheManager.stats();
+    }
+}
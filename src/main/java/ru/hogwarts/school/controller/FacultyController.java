@@ -3,6 +3,10 @@ package ru.hogwarts.school.controller;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import ru.hogwarts.school.dto.FacultyStats;
+import ru.hogwarts.school.dto.LookupResult;
+import ru.hogwarts.school.dto.RosterPage;
+import ru.hogwarts.school.dto.SearchHit;
 import ru.hogwarts.school.model.Faculty;
 import ru.hogwarts.school.model.Student;
 import ru.hogwarts.school.service.FacultyService;
@@ -30,16 +34,57 @@ public class FacultyController {
         return ResponseEntity.ok(faculty);
     }
 
+    @GetMapping("stats")
+    public ResponseEntity<List<FacultyStats>> getFacultyStats() {
+        return ResponseEntity.ok(facultyService.getFacultyStats());
+    }
+
     @GetMapping("{id}/student")
     public ResponseEntity<List<Student>> getStudentsOfFaculty(@PathVariable Long id) {
         Faculty faculty = facultyService.findFaculty(id);
         if (faculty == null) {
             return ResponseEntity.notFound().build();
         }
-        return ResponseEntity.ok(facultyService.findFaculty(id).getStudents());
+        return ResponseEntity.ok(facultyService.findStudentsOfFaculty(id));
+    }
+
+    /**
+     * Pages through the students of a faculty. {@code sort} is {@code id}, {@code name} or {@code age};
+     * the returned {@code nextCursor} is passed back as {@code cursor} with the same sort and direction.
+     */
+    @GetMapping("{id}/roster")
+    public ResponseEntity<RosterPage> getRoster(@PathVariable Long id,
+                                                @RequestParam(defaultValue = "id") String sort,
+                                                @RequestParam(defaultValue = "asc") String direction,
+                                                @RequestParam(required = false) String cursor,
+                                                @RequestParam(defaultValue = "20") int limit) {
+        if (facultyService.findFaculty(id) == null) {
+            return ResponseEntity.notFound().build();
+        }
+        try {
+            return ResponseEntity.ok(facultyService.findRoster(id, sort, direction, cursor, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
     }
 
 
+    @GetMapping(params = "ids")
+    public ResponseEntity<LookupResult<Faculty>> getFaculties(@RequestParam List<Long> ids) {
+        return lookupFaculties(ids);
+    }
+
+    /**
+     * The same as {@code GET /faculty?ids=} for id lists too long for a URL.
+     */
+    @PostMapping("lookup")
+    public ResponseEntity<LookupResult<Faculty>> lookupFaculties(@RequestBody List<Long> ids) {
+        if (ids.size() > FacultyService.MAX_LOOKUP_IDS) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(facultyService.lookupFaculties(ids));
+    }
+
     @GetMapping
     public ResponseEntity<List<Faculty>> findFaculties(@RequestParam(required = false) String name,
                                                        @RequestParam(required = false) String color) {
@@ -52,6 +97,18 @@ public class FacultyController {
         return ResponseEntity.ok(Collections.emptyList());
     }
 
+    /**
+     * Case-insensitive substring search over faculty names, best matches first.
+     */
+    @GetMapping("search")
+    public ResponseEntity<List<SearchHit>> searchFaculties(@RequestParam String q,
+                                                           @RequestParam(defaultValue = "20") int limit) {
+        if (q.isBlank()) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(facultyService.searchByName(q, limit));
+    }
+
     @PostMapping
     public Faculty createFaculty(@RequestBody Faculty faculty) {
         return facultyService.createFaculty(faculty);
@@ -1,23 +1,50 @@
 package ru.hogwarts.school.controller;
 
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.hogwarts.school.dto.CursorPage;
+import ru.hogwarts.school.dto.LookupResult;
+import ru.hogwarts.school.dto.SearchHit;
+import ru.hogwarts.school.dto.StudentFacultyView;
+import ru.hogwarts.school.dto.StudentBatchItem;
+import ru.hogwarts.school.dto.StudentBatchReport;
 import ru.hogwarts.school.model.Faculty;
 import ru.hogwarts.school.model.Student;
+import ru.hogwarts.school.service.StudentBatchService;
+import ru.hogwarts.school.service.StudentExportService;
 import ru.hogwarts.school.service.StudentService;
+import ru.hogwarts.school.service.StudentStatistics;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("student")
 public class StudentController {
     private final StudentService studentService;
+    private final StudentBatchService studentBatchService;
+    private final StudentExportService studentExportService;
+    private final ObjectMapper objectMapper;
 
-    public StudentController(StudentService studentService) {
+    public StudentController(StudentService studentService, StudentBatchService studentBatchService,
+                             StudentExportService studentExportService, ObjectMapper objectMapper) {
         this.studentService = studentService;
+        this.studentBatchService = studentBatchService;
+        this.studentExportService = studentExportService;
+        this.objectMapper = objectMapper;
     }
 
     @GetMapping("{id}")
@@ -29,6 +56,22 @@ public class StudentController {
         return ResponseEntity.ok(student);
     }
 
+    @GetMapping(params = "ids")
+    public ResponseEntity<LookupResult<Student>> getStudents(@RequestParam List<Long> ids) {
+        return lookupStudents(ids);
+    }
+
+    /**
+     * The same as {@code GET /student?ids=} for id lists too long for a URL.
+     */
+    @PostMapping("lookup")
+    public ResponseEntity<LookupResult<Student>> lookupStudents(@RequestBody List<Long> ids) {
+        if (ids.size() > StudentService.MAX_LOOKUP_IDS) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(studentService.lookupStudents(ids));
+    }
+
     @GetMapping("studentAge")
     public ResponseEntity<Collection<Student>> findStudents(@RequestParam(required = false) Integer age) {
         if (age > 0) {
@@ -45,6 +88,42 @@ public class StudentController {
 
     }
 
+    @GetMapping("scroll")
+    public ResponseEntity<CursorPage<Student>> scrollStudents(@RequestParam(defaultValue = "0") long after,
+                                                              @RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(studentService.scrollStudents(after, limit));
+    }
+
+    @GetMapping("export")
+    public ResponseEntity<StreamingResponseBody> exportStudents(@RequestParam(defaultValue = "ndjson") String format,
+                                                                @RequestParam(defaultValue = "false") boolean gzip) {
+        StudentExportService.Format exportFormat;
+        try {
+            exportFormat = StudentExportService.Format.of(format);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(exportFormat == StudentExportService.Format.CSV
+                        ? new MediaType("text", "csv", StandardCharsets.UTF_8)
+                        : MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("students." + exportFormat.name().toLowerCase(Locale.ROOT))
+                        .build().toString());
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(out -> {
+            if (gzip) {
+                GZIPOutputStream gzipOut = new GZIPOutputStream(out, 64 * 1024);
+                studentExportService.export(exportFormat, gzipOut);
+                gzipOut.finish();
+            } else {
+                studentExportService.export(exportFormat, out);
+            }
+        });
+    }
+
     @GetMapping("{id}/faculty")
     public ResponseEntity<Faculty> getFacultyOfStudent(@PathVariable Long id) {
         Student student = studentService.findStudent(id);
@@ -54,6 +133,28 @@ public class StudentController {
         return ResponseEntity.ok(student.getFaculty());
     }
 
+    /**
+     * The student with its faculty's fields, read in one query.
+     */
+    @GetMapping("{id}/view")
+    public ResponseEntity<StudentFacultyView> getStudentView(@PathVariable Long id) {
+        return ResponseEntity.of(studentService.findStudentView(id));
+    }
+
+    @GetMapping(value = "view", params = "ids")
+    public ResponseEntity<List<StudentFacultyView>> getStudentViews(@RequestParam List<Long> ids) {
+        if (ids.size() > StudentService.MAX_LOOKUP_IDS) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(studentService.findStudentViews(ids));
+    }
+
+    @GetMapping("view")
+    public ResponseEntity<CursorPage<StudentFacultyView>> scrollStudentViews(@RequestParam(defaultValue = "0") long after,
+                                                                             @RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(studentService.scrollStudentViews(after, limit));
+    }
+
     @GetMapping("studentNumber")
     public Integer getNumberOfStudents() {
         Integer numberOfStudents = studentService.getNumberOfStudents();
@@ -66,18 +167,86 @@ public class StudentController {
         return avgAgeOfStudents;
     }
 
+    @GetMapping("statistics")
+    public StudentStatistics.Snapshot getStatistics() {
+        return studentService.getStatistics();
+    }
+
+    @GetMapping("age/distribution")
+    public List<StudentStatistics.AgeBucket> getAgeDistribution(@RequestParam(defaultValue = "1") int width) {
+        return studentService.getAgeDistribution(width);
+    }
+
+    @GetMapping("age/count")
+    public long countByAgeBetween(@RequestParam int min, @RequestParam int max) {
+        return studentService.countByAgeBetween(min, max);
+    }
+
+    @GetMapping("age/percentile")
+    public ResponseEntity<Integer> getAgePercentile(@RequestParam double p) {
+        if (p < 0 || p > 100) {
+            return ResponseEntity.badRequest().build();
+        }
+        Integer age = studentService.getAgePercentile(p);
+        if (age == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(age);
+    }
+
+    /**
+     * Case-insensitive substring search over student names, best matches first.
+     */
+    @GetMapping("search")
+    public ResponseEntity<List<SearchHit>> searchStudents(@RequestParam String q,
+                                                          @RequestParam(defaultValue = "20") int limit) {
+        if (q.isBlank()) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(studentService.searchByName(q, limit));
+    }
+
+    @GetMapping("youngest")
+    public List<Student> getYoungestStudents(@RequestParam(defaultValue = "5") int n) {
+        return studentService.findYoungest(n);
+    }
+
+    @GetMapping("oldest")
+    public List<Student> getOldestStudents(@RequestParam(defaultValue = "5") int n) {
+        return studentService.findOldest(n);
+    }
+
     @GetMapping("LastFiveStudents")
     public List<Student> getLastFiveStudents() {
         List<Student> lastStudents = studentService.getLastStudents();
         return lastStudents;
     }
 
+    /**
+     * The {@code n} most recently created students, newest first; {@code n} is capped at {@code student.recent.capacity}.
+     */
+    @GetMapping("latest")
+    public List<Student> getLatestStudents(@RequestParam(defaultValue = "5") int n) {
+        return studentService.getLatestStudents(n);
+    }
+
 
     @PostMapping
     public Student createStudent(@RequestBody Student student) {
         return studentService.createStudent(student);
     }
 
+    /**
+     * Accepts a JSON array or newline-delimited JSON, read as a stream.
+     */
+    @PostMapping(value = "batch", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public StudentBatchReport createStudents(HttpServletRequest request) throws IOException {
+        try (MappingIterator<StudentBatchItem> items = objectMapper.readerFor(StudentBatchItem.class)
+                .readValues(request.getInputStream())) {
+            return studentBatchService.saveStudents(items);
+        }
+    }
+
     @PutMapping
     public ResponseEntity<Student> editStudent(@RequestBody Student student) {
         Student foundStudent = studentService.editStudent(student);
@@ -0,0 +1,39 @@
+package ru.hogwarts.school.controller;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import ru.hogwarts.school.dto.StudentImportReport;
+import ru.hogwarts.school.service.StudentImportService;
+
+import java.io.IOException;
+
+@RestController
+@RequestMapping("student/import")
+public class StudentImportController {
+
+    private final StudentImportService studentImportService;
+
+    public StudentImportController(StudentImportService studentImportService) {
+        this.studentImportService = studentImportService;
+    }
+
+    @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<StudentImportReport> importStudents(@RequestParam MultipartFile file) throws IOException {
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(studentImportService.startImport(file));
+    }
+
+    @GetMapping("{jobId}")
+    public ResponseEntity<StudentImportReport> getImport(@PathVariable Long jobId) {
+        return ResponseEntity.of(studentImportService.getReport(jobId));
+    }
+
+    @PostMapping("{jobId}/resume")
+    public ResponseEntity<StudentImportReport> resumeImport(@PathVariable Long jobId) {
+        return studentImportService.resume(jobId)
+                .map(report -> ResponseEntity.status(HttpStatus.ACCEPTED).body(report))
+                .orElse(ResponseEntity.notFound().build());
+    }
+}
@@ -0,0 +1,13 @@
+package ru.hogwarts.school.dto;
+
+import java.util.List;
+
+public record AvatarImportReport(int total, int imported, int failed, List<AvatarImportResult> entries) {
+
+    public static AvatarImportReport of(List<AvatarImportResult> entries) {
+        int imported = (int) entries.stream()
+                .filter(entry -> entry.status() == AvatarImportResult.Status.IMPORTED)
+                .count();
+        return new AvatarImportReport(entries.size(), imported, entries.size() - imported, entries);
+    }
+}
@@ -0,0 +1,16 @@
+package ru.hogwarts.school.dto;
+
+public record AvatarImportResult(String fileName, Long studentId, Status status, String message) {
+
+    public enum Status {
+        IMPORTED, FAILED
+    }
+
+    public static AvatarImportResult imported(String fileName, Long studentId) {
+        return new AvatarImportResult(fileName, studentId, Status.IMPORTED, null);
+    }
+
+    public static AvatarImportResult failed(String fileName, Long studentId, String message) {
+        return new AvatarImportResult(fileName, studentId, Status.FAILED, message);
+    }
+}
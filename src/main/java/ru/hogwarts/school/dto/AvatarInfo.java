@@ -0,0 +1,9 @@
+package ru.hogwarts.school.dto;
+
+public record AvatarInfo(Long id, Long studentId, String mediaType, long fileSize, String url) {
+
+    public AvatarInfo(Long id, Long studentId, String mediaType, Long fileSize) {
+        this(id, studentId, mediaType, fileSize == null ? 0 : fileSize,
+                studentId == null ? null : "/avatar/" + studentId + "/avatar/preview-avatar-file");
+    }
+}
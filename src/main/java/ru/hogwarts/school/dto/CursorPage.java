@@ -0,0 +1,21 @@
+package ru.hogwarts.school.dto;
+
+import org.springframework.data.domain.Slice;
+
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+/**
+ * One page of a keyset-paginated listing. {@code nextCursor} is passed as {@code after} to fetch
+ * the next page and is {@code null} on the last one.
+ */
+public record CursorPage<T>(List<T> items, Long nextCursor) {
+
+    public static <T> CursorPage<T> of(Slice<T> slice, ToLongFunction<T> cursor) {
+        List<T> items = slice.getContent();
+        Long nextCursor = slice.hasNext() && !items.isEmpty()
+                ? cursor.applyAsLong(items.get(items.size() - 1))
+                : null;
+        return new CursorPage<>(items, nextCursor);
+    }
+}
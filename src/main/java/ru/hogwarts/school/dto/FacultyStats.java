@@ -0,0 +1,5 @@
+package ru.hogwarts.school.dto;
+
+public record FacultyStats(Long facultyId, String name, String color, long studentCount, Double averageAge,
+                           Integer minAge, Integer maxAge) {
+}
@@ -0,0 +1,25 @@
+package ru.hogwarts.school.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Entities found for a list of ids, in the order the ids were requested, and the ids that were not found.
+ */
+public record LookupResult<T>(List<T> items, List<Long> missing) {
+
+    public static <T> LookupResult<T> of(List<Long> ids, Function<Long, T> found) {
+        List<T> items = new ArrayList<>(ids.size());
+        List<Long> missing = new ArrayList<>();
+        for (Long id : ids) {
+            T item = found.apply(id);
+            if (item == null) {
+                missing.add(id);
+            } else {
+                items.add(item);
+            }
+        }
+        return new LookupResult<>(items, missing);
+    }
+}
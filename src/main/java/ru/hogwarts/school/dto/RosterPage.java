@@ -0,0 +1,10 @@
+package ru.hogwarts.school.dto;
+
+import java.util.List;
+
+/**
+ * One page of a faculty roster. {@code nextCursor} is an opaque token passed as {@code cursor} with the
+ * same sort to fetch the next page, and is {@code null} on the last one.
+ */
+public record RosterPage(List<StudentSummary> items, String nextCursor) {
+}
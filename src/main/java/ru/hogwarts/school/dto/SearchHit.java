@@ -0,0 +1,4 @@
+package ru.hogwarts.school.dto;
+
+public record SearchHit(Long id, String name) {
+}
@@ -0,0 +1,7 @@
+package ru.hogwarts.school.dto;
+
+/**
+ * One student of a batch request. Items with an id update that student, the others create one.
+ */
+public record StudentBatchItem(Long id, String name, Integer age) {
+}
@@ -0,0 +1,11 @@
+package ru.hogwarts.school.dto;
+
+import java.util.List;
+
+public record StudentBatchReport(int total, int saved, int failed, List<StudentBatchResult> items) {
+
+    public static StudentBatchReport of(List<StudentBatchResult> items) {
+        int failed = (int) items.stream().filter(item -> item.error() != null).count();
+        return new StudentBatchReport(items.size(), items.size() - failed, failed, items);
+    }
+}
@@ -0,0 +1,12 @@
+package ru.hogwarts.school.dto;
+
+public record StudentBatchResult(int index, Long id, String error) {
+
+    public static StudentBatchResult saved(int index, Long id) {
+        return new StudentBatchResult(index, id, null);
+    }
+
+    public static StudentBatchResult failed(int index, Long id, String error) {
+        return new StudentBatchResult(index, id, error);
+    }
+}
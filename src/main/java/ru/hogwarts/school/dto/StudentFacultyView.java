@@ -0,0 +1,9 @@
+package ru.hogwarts.school.dto;
+
+/**
+ * A student together with its faculty, read in one join; the faculty fields are {@code null}
+ * for a student without a faculty.
+ */
+public record StudentFacultyView(Long id, String name, Integer age, Long facultyId, String facultyName,
+                                 String facultyColor) {
+}
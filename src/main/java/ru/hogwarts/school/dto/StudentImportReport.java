@@ -0,0 +1,24 @@
+package ru.hogwarts.school.dto;
+
+import ru.hogwarts.school.model.StudentImportJob;
+import ru.hogwarts.school.model.StudentImportRejection;
+
+import java.time.Instant;
+import java.util.List;
+
+public record StudentImportReport(Long jobId, String fileName, StudentImportJob.Status status, Long totalRows,
+                                  long processedRows, long importedRows, long rejectedRows, String error,
+                                  Instant createdAt, Instant finishedAt, List<Rejection> rejections) {
+
+    public static StudentImportReport of(StudentImportJob job, List<StudentImportRejection> rejections) {
+        return new StudentImportReport(job.getId(), job.getFileName(), job.getStatus(), job.getTotalRows(),
+                job.getProcessedRows(), job.getImportedRows(), job.getRejectedRows(), job.getError(),
+                job.getCreatedAt(), job.getFinishedAt(),
+                rejections.stream()
+                        .map(rejection -> new Rejection(rejection.getRowNumber(), rejection.getReason(), rejection.getLine()))
+                        .toList());
+    }
+
+    public record Rejection(long rowNumber, String reason, String line) {
+    }
+}
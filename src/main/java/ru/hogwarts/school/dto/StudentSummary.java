@@ -0,0 +1,4 @@
+package ru.hogwarts.school.dto;
+
+public record StudentSummary(Long id, String name, Integer age) {
+}
@@ -1,14 +1,13 @@
 package ru.hogwarts.school.model;
 
-import jakarta.persistence.Entity;
-import jakarta.persistence.GeneratedValue;
-import jakarta.persistence.Id;
-import jakarta.persistence.OneToOne;
+import jakarta.persistence.*;
 
+import java.time.Instant;
 import java.util.Arrays;
 import java.util.Objects;
 
 @Entity
+@Table(indexes = @Index(name = "avatar_content_hash_idx", columnList = "content_hash"))
 public class Avatar {
     @Id
     @GeneratedValue()
@@ -16,6 +15,8 @@ public class Avatar {
     private String filePath;
     private long fileSize;
     private String mediaType;
+    private String contentHash;
+    private Instant uploadedAt;
     private byte[] data;
     @OneToOne
     private Student student;
@@ -64,6 +65,22 @@ public class Avatar {
         this.mediaType = mediaType;
     }
 
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+
+    public Instant getUploadedAt() {
+        return uploadedAt;
+    }
+
+    public void setUploadedAt(Instant uploadedAt) {
+        this.uploadedAt = uploadedAt;
+    }
+
     public byte[] getData() {
         return data;
     }
@@ -85,12 +102,12 @@ public class Avatar {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         Avatar avatar = (Avatar) o;
-        return fileSize == avatar.fileSize && Objects.equals(id, avatar.id) && Objects.equals(filePath, avatar.filePath) && Objects.equals(mediaType, avatar.mediaType) && Objects.deepEquals(data, avatar.data) && Objects.equals(student, avatar.student);
+        return fileSize == avatar.fileSize && Objects.equals(id, avatar.id) && Objects.equals(filePath, avatar.filePath) && Objects.equals(mediaType, avatar.mediaType) && Objects.equals(contentHash, avatar.contentHash) && Objects.equals(uploadedAt, avatar.uploadedAt) && Objects.deepEquals(data, avatar.data) && Objects.equals(student, avatar.student);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(id, filePath, fileSize, mediaType, Arrays.hashCode(data), student);
+        return Objects.hash(id, filePath, fileSize, mediaType, contentHash, uploadedAt, Arrays.hashCode(data), student);
     }
 
     @Override
@@ -100,6 +117,8 @@ public class Avatar {
                 ", filePath='" + filePath + '\'' +
                 ", fileSize=" + fileSize +
                 ", mediaType='" + mediaType + '\'' +
+                ", contentHash='" + contentHash + '\'' +
+                ", uploadedAt=" + uploadedAt +
                 ", data=" + Arrays.toString(data) +
                 ", student=" + student +
                 '}';
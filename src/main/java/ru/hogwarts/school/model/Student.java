@@ -6,9 +6,16 @@ import jakarta.persistence.*;
 import java.util.Objects;
 
 @Entity
+@Table(indexes = {
+        @Index(name = "student_age_idx", columnList = "age"),
+        @Index(name = "student_faculty_id_idx", columnList = "faculty_id, id"),
+        @Index(name = "student_faculty_name_idx", columnList = "faculty_id, name, id"),
+        @Index(name = "student_faculty_age_idx", columnList = "faculty_id, age, id")
+})
 public class Student {
     @Id
-    @GeneratedValue
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "student_seq")
+    @SequenceGenerator(name = "student_seq", sequenceName = "student_seq", allocationSize = 50)
     private Long id;
     private String name;
     private Integer age;
@@ -0,0 +1,60 @@
+package ru.hogwarts.school.model;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+/**
+ * Marks a chunk of an import as committed. It is written in the same transaction as the chunk's
+ * students, so a resumed import knows exactly which chunks to skip.
+ */
+@Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "student_import_chunk_uk", columnNames = {"job_id", "chunk_index"}))
+public class StudentImportChunk {
+    @Id
+    @GeneratedValue
+    private Long id;
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "job_id")
+    private StudentImportJob job;
+    @Column(name = "chunk_index")
+    private int chunkIndex;
+    private long firstRow;
+    private int rowCount;
+    private Instant committedAt;
+
+    public StudentImportChunk() {
+    }
+
+    public StudentImportChunk(StudentImportJob job, int chunkIndex, long firstRow, int rowCount) {
+        this.job = job;
+        this.chunkIndex = chunkIndex;
+        this.firstRow = firstRow;
+        this.rowCount = rowCount;
+        this.committedAt = Instant.now();
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public StudentImportJob getJob() {
+        return job;
+    }
+
+    public int getChunkIndex() {
+        return chunkIndex;
+    }
+
+    public long getFirstRow() {
+        return firstRow;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public Instant getCommittedAt() {
+        return committedAt;
+    }
+}
@@ -0,0 +1,48 @@
+package ru.hogwarts.school.model;
+
+import jakarta.persistence.*;
+
+@Entity
+@Table(indexes = @Index(name = "student_import_rejection_job_idx", columnList = "job_id, rowNumber"))
+public class StudentImportRejection {
+    @Id
+    @GeneratedValue
+    private Long id;
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "job_id")
+    private StudentImportJob job;
+    private long rowNumber;
+    private String reason;
+    @Column(length = 1000)
+    private String line;
+
+    public StudentImportRejection() {
+    }
+
+    public StudentImportRejection(StudentImportJob job, long rowNumber, String reason, String line) {
+        this.job = job;
+        this.rowNumber = rowNumber;
+        this.reason = reason;
+        this.line = line;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public StudentImportJob getJob() {
+        return job;
+    }
+
+    public long getRowNumber() {
+        return rowNumber;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+
+    public String getLine() {
+        return line;
+    }
+}
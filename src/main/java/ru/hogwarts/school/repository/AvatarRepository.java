@@ -1,8 +1,14 @@
 package ru.hogwarts.school.repository;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import ru.hogwarts.school.dto.AvatarInfo;
 import ru.hogwarts.school.model.Avatar;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -10,4 +16,16 @@ public interface AvatarRepository extends JpaRepository<Avatar, Long> {
 
     Optional<Avatar> findByStudentId(Long studentId);
 
+    List<Avatar> findByStudentIdIn(Collection<Long> studentIds);
+
+    long countByContentHash(String contentHash);
+
+    @Query("select new ru.hogwarts.school.dto.AvatarInfo(a.id, a.student.id, a.mediaType, a.fileSize) " +
+            "from Avatar a order by a.id")
+    List<AvatarInfo> findAllInfo(Pageable pageable);
+
+    @Query("select new ru.hogwarts.school.dto.AvatarInfo(a.id, a.student.id, a.mediaType, a.fileSize) " +
+            "from Avatar a where a.id > :after order by a.id")
+    Slice<AvatarInfo> findInfoAfter(@Param("after") long after, Pageable pageable);
+
 }
\ No newline at end of file
@@ -1,13 +1,20 @@
 package ru.hogwarts.school.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import ru.hogwarts.school.model.Faculty;
 import ru.hogwarts.school.model.Student;
 
 import java.util.List;
+import java.util.Optional;
 
 public interface FacultyRepository extends JpaRepository<Faculty, Long> {
 
     List<Faculty> findByNameIgnoreCaseOrColorIgnoreCase(String name, String color);
 
+    Optional<Faculty> findFirstByNameIgnoreCaseOrderByIdAsc(String name);
+
+    @Query("select f.id as id, f.name as name from Faculty f")
+    List<NameView> findAllNames();
+
 }
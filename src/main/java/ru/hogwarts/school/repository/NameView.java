@@ -0,0 +1,11 @@
+package ru.hogwarts.school.repository;
+
+/**
+ * Id and name of a student or faculty, for building in-memory name indexes.
+ */
+public interface NameView {
+
+    Long getId();
+
+    String getName();
+}
@@ -0,0 +1,14 @@
+package ru.hogwarts.school.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import ru.hogwarts.school.model.StudentImportChunk;
+
+import java.util.Set;
+
+public interface StudentImportChunkRepository extends JpaRepository<StudentImportChunk, Long> {
+
+    @Query("select c.chunkIndex from StudentImportChunk c where c.job.id = :jobId")
+    Set<Integer> findCommittedChunkIndexes(@Param("jobId") long jobId);
+}
@@ -0,0 +1,17 @@
+package ru.hogwarts.school.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import ru.hogwarts.school.model.StudentImportJob;
+
+public interface StudentImportJobRepository extends JpaRepository<StudentImportJob, Long> {
+
+    @Modifying
+    @Query("update StudentImportJob j set j.processedRows = j.processedRows + :processed, " +
+            "j.importedRows = j.importedRows + :imported, j.rejectedRows = j.rejectedRows + :rejected " +
+            "where j.id = :id")
+    void addProgress(@Param("id") long id, @Param("processed") long processed,
+                     @Param("imported") long imported, @Param("rejected") long rejected);
+}
@@ -0,0 +1,12 @@
+package ru.hogwarts.school.repository;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import ru.hogwarts.school.model.StudentImportRejection;
+
+import java.util.List;
+
+public interface StudentImportRejectionRepository extends JpaRepository<StudentImportRejection, Long> {
+
+    List<StudentImportRejection> findByJobIdOrderByRowNumberAsc(long jobId, Pageable pageable);
+}
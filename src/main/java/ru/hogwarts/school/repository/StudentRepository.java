@@ -1,22 +1,128 @@
 package ru.hogwarts.school.repository;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import ru.hogwarts.school.dto.StudentFacultyView;
+import ru.hogwarts.school.dto.StudentSummary;
 import ru.hogwarts.school.model.Student;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
 public interface StudentRepository extends JpaRepository<Student, Long> {
 
+    @EntityGraph(attributePaths = "faculty")
+    Optional<Student> findWithFacultyById(long id);
+
+    List<Student> findByFacultyId(long facultyId);
+
+    @Query("select new ru.hogwarts.school.dto.StudentSummary(s.id, s.name, s.age) from Student s " +
+            "where s.faculty.id = :facultyId and (:afterId is null or s.id > :afterId) " +
+            "order by s.id asc")
+    Slice<StudentSummary> findRosterByIdAsc(@Param("facultyId") long facultyId, @Param("afterId") Long afterId,
+                                           Pageable pageable);
+
+    @Query("select new ru.hogwarts.school.dto.StudentSummary(s.id, s.name, s.age) from Student s " +
+            "where s.faculty.id = :facultyId and (:afterId is null " +
+            "or s.name > :name or (s.name = :name and s.id > :afterId)) " +
+            "order by s.name asc, s.id asc")
+    Slice<StudentSummary> findRosterByNameAsc(@Param("facultyId") long facultyId, @Param("name") String name,
+                                             @Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("select new ru.hogwarts.school.dto.StudentSummary(s.id, s.name, s.age) from Student s " +
+            "where s.faculty.id = :facultyId and (:afterId is null " +
+            "or coalesce(s.age, -1) > :age or (coalesce(s.age, -1) = :age and s.id > :afterId)) " +
+            "order by coalesce(s.age, -1) asc, s.id asc")
+    Slice<StudentSummary> findRosterByAgeAsc(@Param("facultyId") long facultyId, @Param("age") Integer age,
+                                            @Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("select new ru.hogwarts.school.dto.StudentSummary(s.id, s.name, s.age) from Student s " +
+            "where s.faculty.id = :facultyId and (:afterId is null or s.id < :afterId) " +
+            "order by s.id desc")
+    Slice<StudentSummary> findRosterByIdDesc(@Param("facultyId") long facultyId, @Param("afterId") Long afterId,
+                                            Pageable pageable);
+
+    @Query("select new ru.hogwarts.school.dto.StudentSummary(s.id, s.name, s.age) from Student s " +
+            "where s.faculty.id = :facultyId and (:afterId is null " +
+            "or s.name < :name or (s.name = :name and s.id < :afterId)) " +
+            "order by s.name desc, s.id desc")
+    Slice<StudentSummary> findRosterByNameDesc(@Param("facultyId") long facultyId, @Param("name") String name,
+                                              @Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("select new ru.hogwarts.school.dto.StudentSummary(s.id, s.name, s.age) from Student s " +
+            "where s.faculty.id = :facultyId and (:afterId is null " +
+            "or coalesce(s.age, -1) < :age or (coalesce(s.age, -1) = :age and s.id < :afterId)) " +
+            "order by coalesce(s.age, -1) desc, s.id desc")
+    Slice<StudentSummary> findRosterByAgeDesc(@Param("facultyId") long facultyId, @Param("age") Integer age,
+                                             @Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("select new ru.hogwarts.school.dto.StudentFacultyView(s.id, s.name, s.age, f.id, f.name, f.color) " +
+            "from Student s left join s.faculty f where s.id = :id")
+    Optional<StudentFacultyView> findViewById(@Param("id") long id);
+
+    @Query("select new ru.hogwarts.school.dto.StudentFacultyView(s.id, s.name, s.age, f.id, f.name, f.color) " +
+            "from Student s left join s.faculty f where s.id in :ids order by s.id")
+    List<StudentFacultyView> findViewsByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("select new ru.hogwarts.school.dto.StudentFacultyView(s.id, s.name, s.age, f.id, f.name, f.color) " +
+            "from Student s left join s.faculty f where s.id > :after order by s.id")
+    Slice<StudentFacultyView> findViewsAfter(@Param("after") long after, Pageable pageable);
+
+    @Query("select s.id as id, s.name as name from Student s")
+    List<NameView> findAllNames();
+
+    @Query("select s.name from Student s where s.name in :names")
+    Set<String> findExistingNames(@Param("names") Collection<String> names);
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<Student> streamAllByOrderByIdAsc();
+
     List<Student> findByAge(int age);
     List<Student> findByAgeBetween(int min, int max);
 
-    @Query(value = "SELECT count(*) FROM student", nativeQuery = true)
-    Integer getNumberOfStudents();
+    Slice<Student> findByIdGreaterThanOrderByIdAsc(long id, Pageable pageable);
+
+    List<Student> findByAgeNotNullOrderByAgeAscIdAsc(Pageable pageable);
+
+    List<Student> findByAgeNotNullOrderByAgeDescIdAsc(Pageable pageable);
+
+    List<Student> findAllByOrderByIdDesc(Pageable pageable);
+
+    @Query("select s.age as age, count(s) as count from Student s where s.age is not null group by s.age")
+    List<AgeCount> countGroupedByAge();
+
+    @Query("select s.faculty.id as facultyId, count(s) as count, avg(s.age) as averageAge, " +
+            "min(s.age) as minAge, max(s.age) as maxAge from Student s where s.faculty is not null group by s.faculty.id")
+    List<FacultyAgeStats> statsGroupedByFaculty();
+
+    interface FacultyAgeStats {
+        Long getFacultyId();
+
+        long getCount();
+
+        Double getAverageAge();
+
+        Integer getMinAge();
+
+        Integer getMaxAge();
+    }
 
-    @Query(value = "SELECT avg(age) from student", nativeQuery = true)
-    Integer getAvgAgeOfStudents();
+    interface AgeCount {
+        int getAge();
 
-    @Query(value = "SELECT * FROM student ORDER BY id DESC LIMIT 5", nativeQuery = true)
-    List <Student> getLastFiveStudents();
+        long getCount();
+    }
 }
@@ -0,0 +1,90 @@
+package ru.hogwarts.school.service;
+
+import java.util.Arrays;
+
+/**
+ * Number of students per age, kept in primitive arrays. Besides the per-age counts it maintains a
+ * Fenwick tree over them, so prefix sums, range counts and rank lookups take {@code O(log MAX_AGE)}.
+ * Ages outside {@code 0..MAX_AGE} are counted in the nearest edge bucket. Not thread-safe.
+ */
+final class AgeHistogram {
+
+    static final int MAX_AGE = 255;
+
+    private final long[] counts = new long[MAX_AGE + 1];
+    private final long[] tree = new long[MAX_AGE + 2];
+    private long total;
+
+    void add(int age, long delta) {
+        int bucket = bucket(age);
+        counts[bucket] += delta;
+        total += delta;
+        for (int i = bucket + 1; i < tree.length; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+    void clear() {
+        Arrays.fill(counts, 0);
+        Arrays.fill(tree, 0);
+        total = 0;
+    }
+
+    long total() {
+        return total;
+    }
+
+    long count(int age) {
+        return age < 0 || age > MAX_AGE ? 0 : counts[age];
+    }
+
+    /**
+     * Number of students aged {@code min} to {@code max}, both inclusive.
+     */
+    long countBetween(int min, int max) {
+        if (max < min || max < 0 || min > MAX_AGE) {
+            return 0;
+        }
+        return countUpTo(Math.min(max, MAX_AGE)) - (min <= 0 ? 0 : countUpTo(min - 1));
+    }
+
+    /**
+     * Age of the student at the given 1-based rank when students are ordered by age, or -1 if
+     * there are fewer students than that.
+     */
+    int ageAtRank(long rank) {
+        if (rank < 1 || rank > total) {
+            return -1;
+        }
+        int position = 0;
+        long remaining = rank;
+        for (int step = Integer.highestOneBit(tree.length - 1); step > 0; step >>= 1) {
+            int next = position + step;
+            if (next < tree.length && tree[next] < remaining) {
+                position = next;
+                remaining -= tree[next];
+            }
+        }
+        return position;
+    }
+
+    int minAge() {
+        return ageAtRank(1);
+    }
+
+    int maxAge() {
+        return ageAtRank(total);
+    }
+
+    private long countUpTo(int age) {
+        long sum = 0;
+        for (int i = age + 1; i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+
+    private static int bucket(int age) {
+        return Math.max(0, Math.min(MAX_AGE, age));
+    }
+}
@@ -0,0 +1,120 @@
+package ru.hogwarts.school.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * LRU cache of avatar previews bounded by the total size of the cached images rather than by
+ * the number of entries.
+ */
+@Component
+public class AvatarCache {
+
+    private final long maxBytes;
+    private final long maxEntryBytes;
+    private final LinkedHashMap<Key, AvatarPreview> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private long currentBytes;
+    private final AtomicLong invalidations = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public AvatarCache(@Value("${avatar.cache.max-bytes:67108864}") long maxBytes,
+                       @Value("${avatar.cache.max-entry-bytes:1048576}") long maxEntryBytes) {
+        this.maxBytes = maxBytes;
+        this.maxEntryBytes = Math.min(maxEntryBytes, maxBytes);
+    }
+
+    public AvatarPreview get(Key key) {
+        AvatarPreview preview;
+        synchronized (this) {
+            preview = entries.get(key);
+        }
+        if (preview == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return preview;
+    }
+
+    public boolean accepts(long size) {
+        return size <= maxEntryBytes;
+    }
+
+    /**
+     * Stamp to take before reading the avatar a preview is built from; see {@link #put}.
+     */
+    public long stamp() {
+        return invalidations.get();
+    }
+
+    /**
+     * Caches a preview unless an avatar was invalidated after {@code stamp} was taken, in which case
+     * the preview may have been built from replaced content.
+     */
+    public synchronized void put(Key key, AvatarPreview preview, long stamp) {
+        long weight = preview.weight();
+        if (preview.data() == null || weight > maxEntryBytes || invalidations.get() != stamp) {
+            return;
+        }
+        AvatarPreview previous = entries.put(key, preview);
+        if (previous != null) {
+            currentBytes -= previous.weight();
+        }
+        currentBytes += weight;
+        Iterator<AvatarPreview> eldest = entries.values().iterator();
+        while (currentBytes > maxBytes && eldest.hasNext()) {
+            currentBytes -= eldest.next().weight();
+            eldest.remove();
+            evictions.increment();
+        }
+    }
+
+    public void invalidate(long studentId) {
+        evict(studentId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict(studentId);
+                }
+            });
+        }
+    }
+
+    private synchronized void evict(long studentId) {
+        invalidations.incrementAndGet();
+        Iterator<Map.Entry<Key, AvatarPreview>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Key, AvatarPreview> entry = iterator.next();
+            if (entry.getKey().studentId() == studentId) {
+                currentBytes -= entry.getValue().weight();
+                iterator.remove();
+            }
+        }
+    }
+
+    public synchronized Stats stats() {
+        return new Stats(hits.sum(), misses.sum(), evictions.sum(), entries.size(), currentBytes, maxBytes);
+    }
+
+    /**
+     * Preview of a student's avatar; {@code size} is the configured thumbnail size a request resolves to,
+     * 0 for the original.
+     */
+    public record Key(long studentId, int size) {
+    }
+
+    public record Stats(long hits, long misses, long evictions, int entries, long bytes, long maxBytes) {
+    }
+}
@@ -0,0 +1,367 @@
+package ru.hogwarts.school.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+import ru.hogwarts.school.dto.AvatarImportReport;
+import ru.hogwarts.school.dto.AvatarImportResult;
+import ru.hogwarts.school.model.Avatar;
+import ru.hogwarts.school.model.Student;
+import ru.hogwarts.school.repository.AvatarRepository;
+import ru.hogwarts.school.storage.AvatarStorage;
+
+import java.io.BufferedReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Imports a ZIP archive of avatars. Entries are named after the student id ({@code 42.png}),
+ * or mapped to students by a {@code manifest.csv} of {@code fileName,studentId} lines at the archive root.
+ * <p>
+ * Entries are stored in parallel, a batch at a time; each batch is then saved in one transaction.
+ * Stored content stays pinned until its batch is saved, so a concurrent avatar replacement cannot delete
+ * a deduplicated image the batch is about to refer to. An import that is interrupted waits for the entries
+ * already being stored and unpins them before it gives up.
+ */
+@Service
+public class AvatarImportService {
+
+    static final String MANIFEST = "manifest.csv";
+
+    private static final Logger logger = LoggerFactory.getLogger(AvatarImportService.class);
+
+    private final AvatarRepository avatarRepository;
+    private final StudentService studentService;
+    private final AvatarStorage avatarStorage;
+    private final AvatarThumbnailService thumbnailService;
+    private final AvatarCache avatarCache;
+    private final TransactionTemplate transactionTemplate;
+    private final int inlineMaxSize;
+    private final int batchSize;
+    private final long maxEntrySize;
+    private final ThreadPoolExecutor executor;
+
+    public AvatarImportService(AvatarRepository avatarRepository,
+                               StudentService studentService,
+                               AvatarStorage avatarStorage,
+                               AvatarThumbnailService thumbnailService,
+                               AvatarCache avatarCache,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${avatar.inline.max-size:262144}") int inlineMaxSize,
+                               @Value("${avatar.import.batch-size:100}") int batchSize,
+                               @Value("${avatar.import.max-entry-size:10485760}") long maxEntrySize,
+                               @Value("${avatar.import.pool-size:4}") int poolSize,
+                               @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.avatarRepository = avatarRepository;
+        this.studentService = studentService;
+        this.avatarStorage = avatarStorage;
+        this.thumbnailService = thumbnailService;
+        this.avatarCache = avatarCache;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.inlineMaxSize = inlineMaxSize;
+        this.batchSize = batchSize;
+        this.maxEntrySize = maxEntrySize;
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(batchSize), WorkerThreads.of("avatar-import-", virtualThreads),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    public AvatarImportReport importArchive(MultipartFile archive) throws IOException {
+        Path tempFile = Files.createTempFile("avatar-import", ".zip");
+        try {
+            archive.transferTo(tempFile);
+            try (ZipFile zipFile = new ZipFile(tempFile.toFile())) {
+                return importEntries(zipFile);
+            }
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    private AvatarImportReport importEntries(ZipFile zipFile) throws IOException {
+        Map<String, Long> manifest = readManifest(zipFile);
+        List<? extends ZipEntry> entries = zipFile.stream()
+                .filter(entry -> !entry.isDirectory() && !isIgnored(entry.getName()))
+                .toList();
+        List<AvatarImportResult> results = new ArrayList<>(entries.size());
+        AtomicBoolean aborted = new AtomicBoolean();
+        for (int from = 0; from < entries.size(); from += batchSize) {
+            List<? extends ZipEntry> batch = entries.subList(from, Math.min(entries.size(), from + batchSize));
+            List<Future<StagedEntry>> futures = new ArrayList<>(batch.size());
+            List<StagedEntry> staged;
+            try {
+                for (ZipEntry entry : batch) {
+                    futures.add(executor.submit(() -> aborted.get()
+                            ? StagedEntry.failed(entry.getName(), null, "Import was aborted")
+                            : stage(zipFile, entry, manifest)));
+                }
+                staged = await(futures, batch);
+            } catch (InterruptedException e) {
+                abort(aborted, futures);
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Avatar import was interrupted");
+            } catch (RuntimeException e) {
+                abort(aborted, futures);
+                throw e;
+            }
+            results.addAll(save(staged));
+        }
+        AvatarImportReport report = AvatarImportReport.of(results);
+        logger.info("Avatar import finished: {} imported, {} failed", report.imported(), report.failed());
+        return report;
+    }
+
+    private StagedEntry stage(ZipFile zipFile, ZipEntry entry, Map<String, Long> manifest) {
+        String fileName = entry.getName();
+        Long studentId = manifest.isEmpty() ? studentIdOf(fileName) : manifest.get(fileName);
+        if (studentId == null) {
+            return StagedEntry.failed(fileName, null, "Cannot tell which student the file belongs to");
+        }
+        if (entry.getSize() > maxEntrySize) {
+            return StagedEntry.failed(fileName, studentId, "File is larger than " + maxEntrySize + " bytes");
+        }
+        String mediaType = MediaTypeFactory.getMediaType(fileName)
+                .map(MediaType::toString)
+                .orElse(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+        try (InputStream is = new SizeLimitedInputStream(zipFile.getInputStream(entry), maxEntrySize)) {
+            AvatarStorage.StoredAvatar stored = avatarStorage.storePinned(is, entry.getSize(), inlineMaxSize);
+            return new StagedEntry(fileName, studentId, mediaType, stored, null);
+        } catch (IOException | RuntimeException e) {
+            return StagedEntry.failed(fileName, studentId, e.getMessage());
+        }
+    }
+
+    private List<AvatarImportResult> save(List<StagedEntry> staged) {
+        try {
+            return transactionTemplate.execute(status -> saveInTransaction(staged));
+        } catch (RuntimeException e) {
+            logger.warn("Failed to save a batch of {} imported avatars", staged.size(), e);
+            List<AvatarImportResult> results = new ArrayList<>(staged.size());
+            for (StagedEntry entry : staged) {
+                results.add(AvatarImportResult.failed(entry.fileName(), entry.studentId(),
+                        entry.error() != null ? entry.error() : "Failed to save the avatar"));
+            }
+            return results;
+        } finally {
+            for (StagedEntry entry : staged) {
+                if (entry.stored() != null) {
+                    avatarStorage.unpin(entry.stored().hash());
+                }
+            }
+        }
+    }
+
+    private List<AvatarImportResult> saveInTransaction(List<StagedEntry> staged) {
+        Set<Long> studentIds = staged.stream()
+                .filter(entry -> entry.stored() != null)
+                .map(StagedEntry::studentId)
+                .collect(Collectors.toSet());
+        Map<Long, Student> students = studentService.findStudents(studentIds).stream()
+                .collect(Collectors.toMap(Student::getId, Function.identity()));
+        Map<Long, Avatar> avatars = avatarRepository.findByStudentIdIn(studentIds).stream()
+                .collect(Collectors.toMap(avatar -> avatar.getStudent().getId(), Function.identity()));
+
+        Map<Long, Avatar> changed = new LinkedHashMap<>();
+        List<AvatarImportResult> results = new ArrayList<>(staged.size());
+        Instant uploadedAt = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+        for (StagedEntry entry : staged) {
+            if (entry.error() != null) {
+                results.add(AvatarImportResult.failed(entry.fileName(), entry.studentId(), entry.error()));
+                continue;
+            }
+            AvatarStorage.StoredAvatar stored = entry.stored();
+            Student student = students.get(entry.studentId());
+            if (student == null) {
+                results.add(AvatarImportResult.failed(entry.fileName(), entry.studentId(), "Student not found"));
+                continue;
+            }
+            Avatar avatar = avatars.computeIfAbsent(entry.studentId(), id -> new Avatar());
+            String previousHash = avatar.getContentHash();
+            avatar.setStudent(student);
+            avatar.setFilePath(stored.location());
+            avatar.setFileSize(stored.size());
+            avatar.setMediaType(entry.mediaType());
+            avatar.setContentHash(stored.hash());
+            avatar.setData(stored.inlineData());
+            avatar.setUploadedAt(uploadedAt);
+            changed.put(entry.studentId(), avatar);
+            if (previousHash != null && !previousHash.equals(stored.hash())) {
+                avatarStorage.release(previousHash);
+            }
+            avatarCache.invalidate(entry.studentId());
+            thumbnailService.scheduleThumbnails(stored.hash());
+            results.add(AvatarImportResult.imported(entry.fileName(), entry.studentId()));
+        }
+        avatarRepository.saveAll(changed.values());
+        return results;
+    }
+
+    private static List<StagedEntry> await(List<Future<StagedEntry>> futures, List<? extends ZipEntry> batch)
+            throws InterruptedException {
+        List<StagedEntry> staged = new ArrayList<>(futures.size());
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                staged.add(futures.get(i).get());
+            } catch (ExecutionException e) {
+                staged.add(StagedEntry.failed(batch.get(i).getName(), null, e.getCause().getMessage()));
+            } catch (CancellationException e) {
+                staged.add(StagedEntry.failed(batch.get(i).getName(), null, "Import was cancelled"));
+            }
+        }
+        return staged;
+    }
+
+    /**
+     * Keeps the entries that have not started from being stored, waits for the ones that have, and unpins
+     * what they stored. Waiting also keeps the archive open until no worker reads from it any more.
+     */
+    private void abort(AtomicBoolean aborted, List<Future<StagedEntry>> futures) {
+        aborted.set(true);
+        boolean interrupted = Thread.interrupted();
+        for (Future<StagedEntry> future : futures) {
+            while (true) {
+                try {
+                    StagedEntry entry = future.get();
+                    if (entry.stored() != null) {
+                        avatarStorage.unpin(entry.stored().hash());
+                    }
+                    break;
+                } catch (ExecutionException | CancellationException e) {
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Map<String, Long> readManifest(ZipFile zipFile) throws IOException {
+        ZipEntry entry = zipFile.getEntry(MANIFEST);
+        if (entry == null) {
+            return Map.of();
+        }
+        Map<String, Long> manifest = new HashMap<>();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(zipFile.getInputStream(entry), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int separator = line.lastIndexOf(',');
+                if (separator < 0) {
+                    continue;
+                }
+                try {
+                    manifest.put(line.substring(0, separator).trim(), Long.parseLong(line.substring(separator + 1).trim()));
+                } catch (NumberFormatException e) {
+                    logger.debug("Skipping manifest line '{}'", line);
+                }
+            }
+        }
+        return manifest;
+    }
+
+    private static Long studentIdOf(String fileName) {
+        String name = fileName.substring(fileName.lastIndexOf('/') + 1);
+        int extension = name.indexOf('.');
+        try {
+            return Long.parseLong(extension < 0 ? name : name.substring(0, extension));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static boolean isIgnored(String fileName) {
+        String name = fileName.substring(fileName.lastIndexOf('/') + 1);
+        return fileName.equals(MANIFEST) || fileName.startsWith("__MACOSX/") || name.startsWith(".");
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (Runnable notStarted : executor.shutdownNow()) {
+            ((Future<?>) notStarted).cancel(false);
+        }
+    }
+
+    /**
+     * Counts the bytes actually read, since the size an entry declares is not to be trusted.
+     */
+    private static final class SizeLimitedInputStream extends FilterInputStream {
+
+        private final long limit;
+        private long count;
+
+        SizeLimitedInputStream(InputStream in, long limit) {
+            super(in);
+            this.limit = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                count(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (read > 0) {
+                count(read);
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count(skipped);
+            return skipped;
+        }
+
+        private void count(long bytes) throws IOException {
+            count += bytes;
+            if (count > limit) {
+                throw new IOException("File is larger than " + limit + " bytes");
+            }
+        }
+    }
+
+    private record StagedEntry(String fileName, Long studentId, String mediaType,
+                               AvatarStorage.StoredAvatar stored, String error) {
+
+        static StagedEntry failed(String fileName, Long studentId, String error) {
+            return new StagedEntry(fileName, studentId, null, null, error);
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package ru.hogwarts.school.service;
+
+import ru.hogwarts.school.storage.AvatarContent;
+
+import java.time.Instant;
+
+/**
+ * Avatar image ready to be sent to a client: either the bytes themselves or the stored content holding them.
+ */
+public record AvatarPreview(String mediaType, String version, Instant lastModified, byte[] data, AvatarContent content) {
+
+    long weight() {
+        return data == null ? 0 : data.length;
+    }
+}
@@ -2,71 +2,158 @@ package ru.hogwarts.school.service;
 
 import jakarta.transaction.Transactional;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
+import ru.hogwarts.school.dto.AvatarInfo;
+import ru.hogwarts.school.dto.CursorPage;
 import ru.hogwarts.school.model.Avatar;
 import ru.hogwarts.school.model.Student;
 import ru.hogwarts.school.repository.AvatarRepository;
+import ru.hogwarts.school.storage.AvatarContent;
+import ru.hogwarts.school.storage.AvatarStorage;
+import ru.hogwarts.school.storage.FileAvatarContent;
 
-import java.io.*;
+import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
 import java.nio.file.Path;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
-
-import static java.nio.file.StandardOpenOption.CREATE_NEW;
+import java.util.Optional;
 
 @Service
 @Transactional
 public class AvatarService {
-    @Value("${path.to.avatars.folder}")
-    private String avatarsDir;
+    @Value("${avatar.inline.max-size:262144}")
+    private int inlineMaxSize;
     private final AvatarRepository avatarRepository;
     private final StudentService studentService;
+    private final AvatarThumbnailService thumbnailService;
+    private final AvatarStorage avatarStorage;
+    private final AvatarCache avatarCache;
 
-    public AvatarService(AvatarRepository avatarRepository, StudentService studentService) {
+    public AvatarService(AvatarRepository avatarRepository, StudentService studentService,
+                         AvatarThumbnailService thumbnailService, AvatarStorage avatarStorage,
+                         AvatarCache avatarCache) {
         this.avatarRepository = avatarRepository;
         this.studentService = studentService;
-    }
-
-    private String getExtensions(String fileName) {
-        return fileName.substring(fileName.lastIndexOf(".") + 1);
+        this.thumbnailService = thumbnailService;
+        this.avatarStorage = avatarStorage;
+        this.avatarCache = avatarCache;
     }
 
     public void uploadAvatar(Long studentId, MultipartFile avatarFile) throws IOException {
         Student student = studentService.findStudent(studentId);
-        Path filePath = Path.of(avatarsDir, student + ".", getExtensions(avatarFile.getOriginalFilename()));
-        Files.createDirectories(filePath.getParent());
-        Files.deleteIfExists(filePath);
-
-        try (
-                InputStream is = avatarFile.getInputStream();
-                OutputStream os = Files.newOutputStream(filePath, CREATE_NEW);
-                BufferedInputStream bis = new BufferedInputStream(is, 1024);
-                BufferedOutputStream bos = new BufferedOutputStream(os, 1024);
-        ) {
-            bis.transferTo(bos);
+        Avatar avatar = findAvatar(studentId);
+        String previousHash = avatar.getContentHash();
+
+        AvatarStorage.StoredAvatar stored;
+        try (InputStream is = avatarFile.getInputStream()) {
+            stored = avatarStorage.store(is, avatarFile.getSize(), inlineMaxSize);
         }
 
-        Avatar avatar = findAvatar(studentId);
         avatar.setStudent(student);
-        avatar.setFilePath(filePath.toString());
-        avatar.setFileSize(avatarFile.getSize());
+        avatar.setFilePath(stored.location());
+        avatar.setFileSize(stored.size());
         avatar.setMediaType(avatarFile.getContentType());
-        avatar.setData(avatarFile.getBytes());
+        avatar.setContentHash(stored.hash());
+        avatar.setData(stored.inlineData());
+        avatar.setUploadedAt(Instant.now().truncatedTo(ChronoUnit.SECONDS));
         avatarRepository.save(avatar);
+        avatarCache.invalidate(studentId);
+        if (previousHash != null && !previousHash.equals(stored.hash())) {
+            avatarStorage.release(previousHash);
+        }
+        thumbnailService.scheduleThumbnails(stored.hash());
     }
 
     public Avatar findAvatar(Long studentId) {
         return avatarRepository.findByStudentId(studentId).orElse(new Avatar());
     }
 
-    public List<Avatar> getPaginatedAvatars(Integer pageNumber, Integer pageSize) {
+    public Optional<AvatarPreview> findPreview(Long studentId, Integer size) throws IOException {
+        int variantSize = size == null ? 0 : thumbnailService.variantSize(size);
+        AvatarCache.Key key = new AvatarCache.Key(studentId, variantSize);
+        AvatarPreview cached = avatarCache.get(key);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        long stamp = avatarCache.stamp();
+        Optional<Avatar> avatar = avatarRepository.findByStudentId(studentId);
+        if (avatar.isEmpty() || avatar.get().getFilePath() == null) {
+            return Optional.empty();
+        }
+
+        String hash = avatar.get().getContentHash();
+        if (variantSize != 0 && hash != null) {
+            Optional<AvatarThumbnailService.Thumbnail> thumbnail = thumbnailService.findThumbnail(hash, variantSize);
+            if (thumbnail.isPresent()) {
+                AvatarContent content = thumbnail.get().content();
+                AvatarPreview preview = new AvatarPreview(AvatarThumbnailService.THUMBNAIL_MEDIA_TYPE,
+                        thumbnail.get().version(), avatar.get().getUploadedAt(), content.readAllBytes(), content);
+                avatarCache.put(key, preview, stamp);
+                return Optional.of(preview);
+            }
+        }
+
+        byte[] data = avatar.get().getData();
+        Optional<AvatarContent> original = openContent(avatar.get());
+        if (data == null && original.isEmpty()) {
+            return Optional.empty();
+        }
+        if (data == null && avatarCache.accepts(avatar.get().getFileSize())) {
+            data = original.get().readAllBytes();
+        }
+        AvatarPreview preview = new AvatarPreview(avatar.get().getMediaType(), hash,
+                avatar.get().getUploadedAt(), data, original.orElse(null));
+        if (variantSize == 0) {
+            avatarCache.put(key, preview, stamp);
+        }
+        return Optional.of(preview);
+    }
+
+    /**
+     * Opens the stored image of an avatar. Rows written before content hashing point straight at a file.
+     */
+    public Optional<AvatarContent> openContent(Avatar avatar) throws IOException {
+        if (avatar.getContentHash() != null) {
+            Optional<AvatarContent> content = avatarStorage.open(avatar.getContentHash());
+            if (content.isPresent()) {
+                return content;
+            }
+        }
+        return legacyContent(avatar);
+    }
+
+    private Optional<AvatarContent> legacyContent(Avatar avatar) {
+        if (avatar.getFilePath() == null) {
+            return Optional.empty();
+        }
+        try {
+            Path file = Path.of(avatar.getFilePath());
+            return Files.isRegularFile(file) ? Optional.of(new FileAvatarContent(file)) : Optional.empty();
+        } catch (InvalidPathException e) {
+            return Optional.empty();
+        }
+    }
+
+    public AvatarCache.Stats getCacheStats() {
+        return avatarCache.stats();
+    }
+
+    public List<AvatarInfo> getPaginatedAvatars(Integer pageNumber, Integer pageSize) {
         PageRequest pageRequest = PageRequest.of(pageNumber - 1, pageSize);
-        Page<Avatar> avatarPage = avatarRepository.findAll(pageRequest);
-        return avatarPage.getContent();
+        return avatarRepository.findAllInfo(pageRequest);
+    }
+
+    public CursorPage<AvatarInfo> scrollAvatars(long after, int limit) {
+        Slice<AvatarInfo> slice = avatarRepository.findInfoAfter(after,
+                PageRequest.of(0, Math.max(1, Math.min(limit, StudentService.MAX_SCROLL_LIMIT))));
+        return CursorPage.of(slice, AvatarInfo::id);
     }
 
 }
\ No newline at end of file
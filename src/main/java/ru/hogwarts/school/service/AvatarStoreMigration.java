@@ -0,0 +1,135 @@
+package ru.hogwarts.school.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import ru.hogwarts.school.model.Avatar;
+import ru.hogwarts.school.repository.AvatarRepository;
+import ru.hogwarts.school.storage.AvatarStorage;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Moves avatar images into the configured {@link AvatarStorage}: files written before content hashing,
+ * and content kept by a previously configured backend. Runs once on startup when the application is started with {@code --avatar.store.migrate=true}.
+ */
+@Component
+@ConditionalOnProperty(name = "avatar.store.migrate", havingValue = "true")
+public class AvatarStoreMigration implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(AvatarStoreMigration.class);
+    private static final int PAGE_SIZE = 100;
+
+    private final AvatarRepository avatarRepository;
+    private final AvatarStorage avatarStorage;
+    private final AvatarThumbnailService thumbnailService;
+    private final int inlineMaxSize;
+
+    public AvatarStoreMigration(AvatarRepository avatarRepository,
+                                AvatarStorage avatarStorage,
+                                AvatarThumbnailService thumbnailService,
+                                @Value("${avatar.inline.max-size:262144}") int inlineMaxSize) {
+        this.avatarRepository = avatarRepository;
+        this.avatarStorage = avatarStorage;
+        this.thumbnailService = thumbnailService;
+        this.inlineMaxSize = inlineMaxSize;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        int migrated = 0;
+        int skipped = 0;
+        Page<Avatar> page = avatarRepository.findAll(PageRequest.of(0, PAGE_SIZE, Sort.by("id")));
+        while (true) {
+            for (Avatar avatar : page) {
+                try {
+                    if (migrate(avatar)) {
+                        migrated++;
+                    }
+                } catch (IOException e) {
+                    skipped++;
+                    logger.warn("Failed to migrate avatar {}", avatar.getId(), e);
+                }
+            }
+            if (!page.hasNext()) {
+                break;
+            }
+            page = avatarRepository.findAll(page.nextPageable());
+        }
+        logger.info("Avatar store migration finished: {} migrated, {} skipped", migrated, skipped);
+    }
+
+    private boolean migrate(Avatar avatar) throws IOException {
+        String hash = avatar.getContentHash();
+        if (hash != null && avatarStorage.open(hash).isPresent()) {
+            return false;
+        }
+
+        Path sourceFile = sourceFile(avatar);
+        AvatarStorage.StoredAvatar stored;
+        Instant uploadedAt = Instant.now();
+        if (sourceFile != null) {
+            uploadedAt = Files.getLastModifiedTime(sourceFile).toInstant();
+            try (InputStream is = Files.newInputStream(sourceFile)) {
+                stored = avatarStorage.store(is, Files.size(sourceFile), inlineMaxSize);
+            }
+        } else if (avatar.getData() != null) {
+            stored = avatarStorage.store(new ByteArrayInputStream(avatar.getData()), avatar.getData().length,
+                    inlineMaxSize);
+        } else {
+            throw new IOException("Neither " + avatar.getFilePath() + " nor inline data is available");
+        }
+
+        avatar.setFilePath(stored.location());
+        avatar.setFileSize(stored.size());
+        avatar.setContentHash(stored.hash());
+        avatar.setData(stored.inlineData());
+        if (avatar.getUploadedAt() == null) {
+            avatar.setUploadedAt(uploadedAt.truncatedTo(ChronoUnit.SECONDS));
+        }
+        avatarRepository.save(avatar);
+
+        if (sourceFile != null && !sourceFile.toString().equals(stored.location())) {
+            deleteWithThumbnails(sourceFile);
+        }
+        thumbnailService.generateThumbnails(stored.hash());
+        return true;
+    }
+
+    private Path sourceFile(Avatar avatar) {
+        if (avatar.getFilePath() == null) {
+            return null;
+        }
+        try {
+            Path file = Path.of(avatar.getFilePath());
+            return Files.isRegularFile(file) ? file : null;
+        } catch (InvalidPathException e) {
+            return null;
+        }
+    }
+
+    private void deleteWithThumbnails(Path file) throws IOException {
+        try (DirectoryStream<Path> thumbnails = Files.newDirectoryStream(file.getParent(),
+                file.getFileName() + "-*.png")) {
+            for (Path thumbnail : thumbnails) {
+                Files.deleteIfExists(thumbnail);
+            }
+        }
+        Files.deleteIfExists(file);
+    }
+}
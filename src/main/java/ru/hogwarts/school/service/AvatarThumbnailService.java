@@ -0,0 +1,148 @@
+package ru.hogwarts.school.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.hogwarts.school.storage.AvatarContent;
+import ru.hogwarts.school.storage.AvatarStorage;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Service
+public class AvatarThumbnailService {
+
+    public static final String THUMBNAIL_MEDIA_TYPE = "image/png";
+
+    private static final Logger logger = LoggerFactory.getLogger(AvatarThumbnailService.class);
+
+    private final AvatarStorage avatarStorage;
+    private final int[] sizes;
+    private final ThreadPoolExecutor executor;
+
+    public AvatarThumbnailService(AvatarStorage avatarStorage,
+                                  @Value("${avatar.thumbnail.sizes:64,128,256}") int[] sizes,
+                                  @Value("${avatar.thumbnail.pool-size:2}") int poolSize,
+                                  @Value("${avatar.thumbnail.queue-capacity:100}") int queueCapacity) {
+        this.avatarStorage = avatarStorage;
+        this.sizes = Arrays.stream(sizes).filter(size -> size > 0).sorted().distinct().toArray();
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "avatar-thumbnail-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                (runnable, pool) -> logger.warn("Thumbnail queue is full, skipping a thumbnail job"));
+    }
+
+    public void scheduleThumbnails(String hash) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    executor.execute(() -> generateThumbnails(hash));
+                }
+            });
+        } else {
+            executor.execute(() -> generateThumbnails(hash));
+        }
+    }
+
+    /**
+     * The smallest configured thumbnail size that covers {@code requestedSize}, or 0 when only the
+     * original does.
+     */
+    public int variantSize(int requestedSize) {
+        for (int size : sizes) {
+            if (size >= requestedSize) {
+                return size;
+            }
+        }
+        return 0;
+    }
+
+    public Optional<Thumbnail> findThumbnail(String hash, int requestedSize) throws IOException {
+        for (int size : sizes) {
+            if (size >= requestedSize) {
+                Optional<AvatarContent> thumbnail = avatarStorage.openVariant(hash, size);
+                if (thumbnail.isPresent()) {
+                    return Optional.of(new Thumbnail(hash + "-" + size, thumbnail.get()));
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    void generateThumbnails(String hash) {
+        try {
+            Optional<AvatarContent> original = avatarStorage.open(hash);
+            if (original.isEmpty()) {
+                return;
+            }
+            BufferedImage image;
+            try (InputStream is = original.get().openStream()) {
+                image = ImageIO.read(is);
+            }
+            if (image == null) {
+                logger.info("No image reader for avatar {}, thumbnails are not generated", hash);
+                return;
+            }
+            int longestSide = Math.max(image.getWidth(), image.getHeight());
+            for (int size : sizes) {
+                if (size >= longestSide) {
+                    break;
+                }
+                if (avatarStorage.openVariant(hash, size).isPresent()) {
+                    continue;
+                }
+                ByteArrayOutputStream thumbnail = new ByteArrayOutputStream();
+                ImageIO.write(scale(image, size, longestSide), "png", thumbnail);
+                avatarStorage.storeVariant(hash, size, thumbnail.toByteArray());
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Failed to generate thumbnails for avatar {}", hash, e);
+        }
+    }
+
+    private BufferedImage scale(BufferedImage image, int size, int longestSide) {
+        int width = Math.max(1, image.getWidth() * size / longestSide);
+        int height = Math.max(1, image.getHeight() * size / longestSide);
+        BufferedImage thumbnail = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = thumbnail.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(image, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return thumbnail;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * A stored thumbnail; {@code version} identifies its content.
+     */
+    public record Thumbnail(String version, AvatarContent content) {
+    }
+}
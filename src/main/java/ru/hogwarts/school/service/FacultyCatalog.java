@@ -0,0 +1,164 @@
+package ru.hogwarts.school.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.hogwarts.school.model.Faculty;
+import ru.hogwarts.school.repository.FacultyRepository;
+
+import java.util.*;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * All faculties held in memory as an immutable snapshot with case-insensitive name and color indexes.
+ * Every change committed through {@link FacultyService} builds a new snapshot and swaps it in, so readers
+ * never lock; the snapshot is also rebuilt from the database periodically to pick up changes made around it.
+ * Writers take a {@link ReentrantLock} rather than the monitor, which would pin a virtual thread to its
+ * carrier while the catalog is loaded.
+ */
+@Component
+public class FacultyCatalog implements FacultyChangeListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(FacultyCatalog.class);
+
+    private final FacultyRepository facultyRepository;
+    private final Lock lock = new ReentrantLock();
+    private volatile Snapshot snapshot;
+
+    public FacultyCatalog(FacultyRepository facultyRepository) {
+        this.facultyRepository = facultyRepository;
+    }
+
+    public Optional<Faculty> find(long id) {
+        return Optional.ofNullable(snapshot().byId().get(id));
+    }
+
+    public List<Faculty> findAll() {
+        return List.copyOf(snapshot().byId().values());
+    }
+
+    /**
+     * Faculties whose name or color equals the given one ignoring case, ordered by id.
+     */
+    public List<Faculty> findByNameOrColor(String name, String color) {
+        Snapshot current = snapshot();
+        List<Faculty> byName = name == null ? List.of() : current.byName().getOrDefault(fold(name), List.of());
+        List<Faculty> byColor = color == null ? List.of() : current.byColor().getOrDefault(fold(color), List.of());
+        if (byColor.isEmpty()) {
+            return byName;
+        }
+        if (byName.isEmpty()) {
+            return byColor;
+        }
+        SortedMap<Long, Faculty> merged = new TreeMap<>();
+        byName.forEach(faculty -> merged.put(faculty.getId(), faculty));
+        byColor.forEach(faculty -> merged.put(faculty.getId(), faculty));
+        return List.copyOf(merged.values());
+    }
+
+    @Override
+    public void onCreated(Faculty faculty) {
+        put(faculty);
+    }
+
+    @Override
+    public void onUpdated(Faculty previous, Faculty current) {
+        put(current);
+    }
+
+    @Override
+    public void onDeleted(Faculty previous) {
+        long id = previous.getId();
+        update(faculties -> faculties.remove(id));
+    }
+
+    @Scheduled(initialDelayString = "${faculty.catalog.reconcile-interval:PT5M}",
+            fixedDelayString = "${faculty.catalog.reconcile-interval:PT5M}")
+    public void reload() {
+        lock.lock();
+        try {
+            load();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void load() {
+        Map<Long, Faculty> faculties = new TreeMap<>();
+        for (Faculty faculty : facultyRepository.findAll()) {
+            faculties.put(faculty.getId(), FacultyChangePublisher.copyOf(faculty));
+        }
+        Snapshot previous = snapshot;
+        snapshot = Snapshot.of(faculties);
+        if (previous != null && !previous.byId().equals(snapshot.byId())) {
+            logger.info("Faculty catalog drifted from the database and was reloaded: {} -> {} faculties",
+                    previous.byId().size(), snapshot.byId().size());
+        }
+    }
+
+    private void put(Faculty faculty) {
+        Faculty copy = FacultyChangePublisher.copyOf(faculty);
+        update(faculties -> faculties.put(copy.getId(), copy));
+    }
+
+    private void update(Consumer<Map<Long, Faculty>> change) {
+        lock.lock();
+        try {
+            if (snapshot == null) {
+                return;
+            }
+            Map<Long, Faculty> faculties = new TreeMap<>(snapshot.byId());
+            change.accept(faculties);
+            snapshot = Snapshot.of(faculties);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Snapshot snapshot() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            lock.lock();
+            try {
+                if (snapshot == null) {
+                    load();
+                }
+                current = snapshot;
+            } finally {
+                lock.unlock();
+            }
+        }
+        return current;
+    }
+
+    private static String fold(String value) {
+        return value.toLowerCase(Locale.ROOT);
+    }
+
+    private record Snapshot(Map<Long, Faculty> byId, Map<String, List<Faculty>> byName,
+                            Map<String, List<Faculty>> byColor) {
+
+        /**
+         * @param faculties ordered by id, which the index lists keep
+         */
+        static Snapshot of(Map<Long, Faculty> faculties) {
+            Map<String, List<Faculty>> byName = new HashMap<>();
+            Map<String, List<Faculty>> byColor = new HashMap<>();
+            for (Faculty faculty : faculties.values()) {
+                if (faculty.getName() != null) {
+                    byName.computeIfAbsent(fold(faculty.getName()), key -> new ArrayList<>()).add(faculty);
+                }
+                if (faculty.getColor() != null) {
+                    byColor.computeIfAbsent(fold(faculty.getColor()), key -> new ArrayList<>()).add(faculty);
+                }
+            }
+            byName.replaceAll((key, list) -> List.copyOf(list));
+            byColor.replaceAll((key, list) -> List.copyOf(list));
+            return new Snapshot(Collections.unmodifiableMap(new LinkedHashMap<>(faculties)), Map.copyOf(byName),
+                    Map.copyOf(byColor));
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package ru.hogwarts.school.service;
+
+import ru.hogwarts.school.model.Faculty;
+
+/**
+ * Notified by {@link FacultyService} after a change to a faculty has been committed.
+ * {@code previous} is a copy of the faculty as it was before the change.
+ */
+public interface FacultyChangeListener {
+
+    default void onCreated(Faculty faculty) {
+    }
+
+    default void onUpdated(Faculty previous, Faculty current) {
+    }
+
+    default void onDeleted(Faculty previous) {
+    }
+}
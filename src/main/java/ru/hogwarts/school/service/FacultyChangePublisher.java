@@ -0,0 +1,67 @@
+package ru.hogwarts.school.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.hogwarts.school.model.Faculty;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Delivers faculty changes to every {@link FacultyChangeListener} once the current transaction
+ * commits, or right away outside a transaction, the same way {@link StudentChangePublisher} does for students.
+ */
+@Component
+public class FacultyChangePublisher {
+
+    private static final Logger logger = LoggerFactory.getLogger(FacultyChangePublisher.class);
+
+    private final List<FacultyChangeListener> listeners;
+
+    public FacultyChangePublisher(List<FacultyChangeListener> listeners) {
+        this.listeners = listeners;
+    }
+
+    public void created(Faculty faculty) {
+        Faculty current = copyOf(faculty);
+        afterCommit(listener -> listener.onCreated(current));
+    }
+
+    public void updated(Faculty previous, Faculty faculty) {
+        Faculty current = copyOf(faculty);
+        afterCommit(listener -> listener.onUpdated(previous, current));
+    }
+
+    public void deleted(Faculty previous) {
+        afterCommit(listener -> listener.onDeleted(previous));
+    }
+
+    static Faculty copyOf(Faculty faculty) {
+        return new Faculty(faculty.getId(), faculty.getName(), faculty.getColor());
+    }
+
+    private void afterCommit(Consumer<FacultyChangeListener> notification) {
+        Runnable dispatch = () -> {
+            for (FacultyChangeListener listener : listeners) {
+                try {
+                    notification.accept(listener);
+                } catch (RuntimeException e) {
+                    logger.warn("Faculty change listener {} failed", listener.getClass().getSimpleName(), e);
+                }
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    dispatch.run();
+                }
+            });
+        } else {
+            dispatch.run();
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package ru.hogwarts.school.service;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.hogwarts.school.model.Faculty;
+import ru.hogwarts.school.repository.FacultyRepository;
+import ru.hogwarts.school.repository.NameView;
+
+import java.util.List;
+
+/**
+ * Substring search over faculty names, kept in sync with committed changes made through
+ * {@link FacultyService} and rebuilt periodically to pick up changes made around it.
+ */
+@Component
+public class FacultyNameIndex extends NameSearchIndex implements FacultyChangeListener {
+
+    private final FacultyRepository facultyRepository;
+
+    public FacultyNameIndex(FacultyRepository facultyRepository) {
+        this.facultyRepository = facultyRepository;
+    }
+
+    @Override
+    protected List<NameView> loadNames() {
+        return facultyRepository.findAllNames();
+    }
+
+    @Override
+    @Scheduled(initialDelayString = "${search.index.rebuild-interval:PT30M}",
+            fixedDelayString = "${search.index.rebuild-interval:PT30M}")
+    public void rebuild() {
+        super.rebuild();
+    }
+
+    @Override
+    public void onCreated(Faculty faculty) {
+        put(faculty.getId(), faculty.getName());
+    }
+
+    @Override
+    public void onUpdated(Faculty previous, Faculty current) {
+        put(current.getId(), current.getName());
+    }
+
+    @Override
+    public void onDeleted(Faculty previous) {
+        remove(previous.getId());
+    }
+}
@@ -1,7 +1,14 @@
 package ru.hogwarts.school.service;
 
+import jakarta.transaction.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.stereotype.Service;
+import ru.hogwarts.school.config.CacheConfiguration;
+import ru.hogwarts.school.dto.FacultyStats;
+import ru.hogwarts.school.dto.LookupResult;
+import ru.hogwarts.school.dto.RosterPage;
+import ru.hogwarts.school.dto.SearchHit;
 import ru.hogwarts.school.model.Faculty;
 import ru.hogwarts.school.model.Student;
 import ru.hogwarts.school.repository.FacultyRepository;
@@ -11,32 +18,101 @@ import java.util.*;
 @Service
 public class FacultyService {
 
+    public static final int MAX_LOOKUP_IDS = StudentService.MAX_LOOKUP_IDS;
+
     @Autowired
     private final FacultyRepository facultyRepository;
-    private StudentService studentService;
+    private final StudentService studentService;
+    private final FacultyChangePublisher changePublisher;
+    private final FacultyNameIndex nameIndex;
+    private final FacultyCatalog facultyCatalog;
 
-    public FacultyService(FacultyRepository facultyRepository) {
+    public FacultyService(FacultyRepository facultyRepository, StudentService studentService,
+                          FacultyChangePublisher changePublisher, FacultyNameIndex nameIndex,
+                          FacultyCatalog facultyCatalog) {
         this.facultyRepository = facultyRepository;
+        this.studentService = studentService;
+        this.changePublisher = changePublisher;
+        this.nameIndex = nameIndex;
+        this.facultyCatalog = facultyCatalog;
     }
 
+    @Transactional
     public Faculty createFaculty(Faculty faculty) {
-        return facultyRepository.save(faculty);
+        Faculty created = facultyRepository.save(faculty);
+        changePublisher.created(created);
+        return created;
     }
 
     public Faculty findFaculty(long id) {
-        return facultyRepository.findById(id).orElse(null);
+        return facultyCatalog.find(id).orElse(null);
+    }
+
+    /**
+     * Resolves the ids from the faculty catalog, without a query. Repeated ids are returned once.
+     */
+    public LookupResult<Faculty> lookupFaculties(List<Long> ids) {
+        List<Long> distinctIds = ids.stream().filter(Objects::nonNull).distinct().toList();
+        return LookupResult.of(distinctIds, id -> facultyCatalog.find(id).orElse(null));
     }
 
+    public List<Student> findStudentsOfFaculty(long id) {
+        return studentService.findByFaculty(id);
+    }
+
+    /**
+     * Statistics of every faculty, ordered by id; faculties without students have a zero count.
+     */
+    public List<FacultyStats> getFacultyStats() {
+        Map<Long, StudentStatistics.Snapshot> statistics = studentService.getStatisticsByFaculty();
+        List<FacultyStats> result = new ArrayList<>();
+        for (Faculty faculty : facultyCatalog.findAll()) {
+            StudentStatistics.Snapshot snapshot = statistics.get(faculty.getId());
+            result.add(snapshot == null
+                    ? new FacultyStats(faculty.getId(), faculty.getName(), faculty.getColor(), 0, null, null, null)
+                    : new FacultyStats(faculty.getId(), faculty.getName(), faculty.getColor(), snapshot.count(),
+                    snapshot.averageAge(), snapshot.minAge(), snapshot.maxAge()));
+        }
+        return result;
+    }
+
+    public RosterPage findRoster(long id, String sort, String direction, String cursor, int limit) {
+        return studentService.findRoster(id, sort, direction, cursor, limit);
+    }
+
+    @Transactional
+    @CacheEvict(cacheNames = CacheConfiguration.STUDENTS, allEntries = true)
     public Faculty editFaculty(Faculty faculty) {
-        return facultyRepository.save(faculty);
+        Faculty previous = faculty.getId() == null
+                ? null
+                : facultyRepository.findById(faculty.getId()).map(FacultyChangePublisher::copyOf).orElse(null);
+        Faculty edited = facultyRepository.save(faculty);
+        if (previous == null) {
+            changePublisher.created(edited);
+        } else {
+            changePublisher.updated(previous, edited);
+        }
+        return edited;
     }
 
+    @Transactional
+    @CacheEvict(cacheNames = CacheConfiguration.STUDENTS, allEntries = true)
     public void deleteFaculty(long id) {
-        facultyRepository.deleteById(id);
+        Optional<Faculty> faculty = facultyRepository.findById(id);
+        if (faculty.isEmpty()) {
+            return;
+        }
+        Faculty previous = FacultyChangePublisher.copyOf(faculty.get());
+        facultyRepository.delete(faculty.get());
+        changePublisher.deleted(previous);
     }
 
     public List<Faculty> findByNameOrColor(String name, String color) {
-        return facultyRepository.findByNameIgnoreCaseOrColorIgnoreCase(name, color);
+        return facultyCatalog.findByNameOrColor(name, color);
+    }
+
+    public List<SearchHit> searchByName(String query, int limit) {
+        return nameIndex.search(query, Math.max(1, Math.min(limit, StudentService.MAX_SEARCH_LIMIT)));
     }
 
 
@@ -0,0 +1,55 @@
+package ru.hogwarts.school.service;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import ru.hogwarts.school.config.CacheConfiguration;
+import ru.hogwarts.school.model.Student;
+
+import java.util.Objects;
+
+/**
+ * Drops the cached per-faculty statistics when a committed student change affects them.
+ */
+@Component
+public class FacultyStatsInvalidator implements StudentChangeListener {
+
+    private final CacheManager cacheManager;
+
+    public FacultyStatsInvalidator(CacheManager cacheManager) {
+        this.cacheManager = cacheManager;
+    }
+
+    @Override
+    public void onCreated(Student student) {
+        if (student.getFaculty() != null) {
+            invalidate();
+        }
+    }
+
+    @Override
+    public void onUpdated(Student previous, Student current) {
+        if (!Objects.equals(facultyId(previous), facultyId(current))
+                || previous.getFaculty() != null && !Objects.equals(previous.getAge(), current.getAge())) {
+            invalidate();
+        }
+    }
+
+    @Override
+    public void onDeleted(Student previous) {
+        if (previous.getFaculty() != null) {
+            invalidate();
+        }
+    }
+
+    private void invalidate() {
+        Cache cache = cacheManager.getCache(CacheConfiguration.FACULTY_STATS);
+        if (cache != null) {
+            cache.clear();
+        }
+    }
+
+    private static Long facultyId(Student student) {
+        return student.getFaculty() == null ? null : student.getFaculty().getId();
+    }
+}
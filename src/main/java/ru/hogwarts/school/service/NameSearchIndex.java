@@ -0,0 +1,114 @@
+package ru.hogwarts.school.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ru.hogwarts.school.dto.SearchHit;
+import ru.hogwarts.school.repository.NameView;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * A {@link TrigramIndex} shared between readers and committed changes. It is loaded on first use and
+ * rebuilt by {@link #rebuild()}; changes arriving while the rebuild reads the database are replayed on
+ * the new index, so none of them is lost.
+ */
+abstract class NameSearchIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(NameSearchIndex.class);
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Lock rebuildLock = new ReentrantLock();
+    private volatile TrigramIndex index;
+    private List<Consumer<TrigramIndex>> changesDuringRebuild;
+
+    protected abstract List<NameView> loadNames();
+
+    public List<SearchHit> search(String query, int limit) {
+        if (index == null) {
+            rebuildLock.lock();
+            try {
+                if (index == null) {
+                    load();
+                }
+            } finally {
+                rebuildLock.unlock();
+            }
+        }
+        lock.readLock().lock();
+        try {
+            return index.search(query, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void rebuild() {
+        rebuildLock.lock();
+        try {
+            load();
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    private void load() {
+        lock.writeLock().lock();
+        try {
+            changesDuringRebuild = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        TrigramIndex rebuilt = new TrigramIndex();
+        try {
+            for (NameView name : loadNames()) {
+                rebuilt.put(name.getId(), name.getName());
+            }
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            changesDuringRebuild = null;
+            lock.writeLock().unlock();
+            throw e;
+        }
+        lock.writeLock().lock();
+        try {
+            changesDuringRebuild.forEach(change -> change.accept(rebuilt));
+            changesDuringRebuild = null;
+            int previousSize = index == null ? -1 : index.size();
+            index = rebuilt;
+            if (previousSize >= 0 && previousSize != rebuilt.size()) {
+                logger.info("{} drifted from the database and was rebuilt: {} -> {} names",
+                        getClass().getSimpleName(), previousSize, rebuilt.size());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    protected void put(Long id, String name) {
+        apply(index -> index.put(id, name));
+    }
+
+    protected void remove(Long id) {
+        apply(index -> index.remove(id));
+    }
+
+    private void apply(Consumer<TrigramIndex> change) {
+        lock.writeLock().lock();
+        try {
+            if (index != null) {
+                change.accept(index);
+            }
+            if (changesDuringRebuild != null) {
+                changesDuringRebuild.add(change);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package ru.hogwarts.school.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import ru.hogwarts.school.model.Student;
+import ru.hogwarts.school.repository.StudentRepository;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The most recently created students, newest first, kept in a bounded lock-free ring buffer.
+ * Seeded from the database at startup and fed by committed changes made through {@link StudentService}.
+ * A delete leaves a hole in the buffer, so the next read after one reloads it from the database.
+ */
+@Component
+public class RecentStudents implements StudentChangeListener {
+
+    private final StudentRepository studentRepository;
+    private final int capacity;
+    private final AtomicReference<Ring> ring = new AtomicReference<>();
+    private final AtomicBoolean stale = new AtomicBoolean(true);
+
+    public RecentStudents(StudentRepository studentRepository,
+                          @Value("${student.recent.capacity:100}") int capacity) {
+        this.studentRepository = studentRepository;
+        this.capacity = Math.max(1, capacity);
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Up to {@code n} of the newest students, {@code n} being capped at {@link #capacity()}.
+     */
+    public List<Student> latest(int n) {
+        if (stale.get()) {
+            reload();
+        }
+        return ring.get().latest(Math.max(1, Math.min(n, capacity)));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reload() {
+        stale.set(false);
+        Ring previous = ring.get();
+        long startSequence = previous == null ? 0 : previous.sequence.get();
+        List<Student> newestFirst = studentRepository.findAllByOrderByIdDesc(PageRequest.of(0, capacity));
+        Ring reloaded = new Ring(capacity);
+        for (int i = newestFirst.size() - 1; i >= 0; i--) {
+            reloaded.add(StudentChangePublisher.copyOf(newestFirst.get(i)));
+        }
+        if (previous != null) {
+            // Students created while the query ran may be missing from its result
+            previous.since(startSequence).forEach(reloaded::addIfAbsent);
+        }
+        ring.set(reloaded);
+    }
+
+    @Override
+    public void onCreated(Student student) {
+        Ring current = ring.get();
+        if (current != null) {
+            current.add(student);
+        } else {
+            stale.set(true);
+        }
+    }
+
+    @Override
+    public void onUpdated(Student previous, Student current) {
+        Ring buffer = ring.get();
+        if (buffer != null) {
+            buffer.replace(current.getId(), current);
+        }
+    }
+
+    @Override
+    public void onDeleted(Student previous) {
+        Ring buffer = ring.get();
+        if (buffer != null && buffer.replace(previous.getId(), null)) {
+            stale.set(true);
+        }
+    }
+
+    private record Entry(long sequence, Student student) {
+    }
+
+    /**
+     * Writers claim a slot by incrementing {@code sequence} and then publish into it; a reader
+     * skips slots whose entry does not carry the sequence it expects, as those are either not
+     * published yet or already overwritten.
+     */
+    private static final class Ring {
+
+        private final AtomicReferenceArray<Entry> slots;
+        private final AtomicLong sequence = new AtomicLong();
+
+        Ring(int capacity) {
+            this.slots = new AtomicReferenceArray<>(capacity);
+        }
+
+        void add(Student student) {
+            long next = sequence.getAndIncrement();
+            slots.set(index(next), new Entry(next, student));
+        }
+
+        void addIfAbsent(Student student) {
+            for (int i = 0; i < slots.length(); i++) {
+                Entry entry = slots.get(i);
+                if (entry != null && entry.student() != null && entry.student().getId().equals(student.getId())) {
+                    return;
+                }
+            }
+            add(student);
+        }
+
+        /**
+         * Swaps the student with the given id for {@code replacement}, or clears its slot when that is null.
+         */
+        boolean replace(Long id, Student replacement) {
+            boolean replaced = false;
+            for (int i = 0; i < slots.length(); i++) {
+                Entry entry = slots.get(i);
+                while (entry != null && entry.student() != null && entry.student().getId().equals(id)) {
+                    if (slots.compareAndSet(i, entry, new Entry(entry.sequence(), replacement))) {
+                        replaced = true;
+                        break;
+                    }
+                    entry = slots.get(i);
+                }
+            }
+            return replaced;
+        }
+
+        List<Student> latest(int n) {
+            long end = sequence.get();
+            long start = Math.max(0, end - slots.length());
+            List<Student> students = new ArrayList<>(n);
+            Set<Long> ids = new HashSet<>();
+            for (long s = end - 1; s >= start && students.size() < n; s--) {
+                Entry entry = slots.get(index(s));
+                if (entry != null && entry.sequence() == s && entry.student() != null
+                        && ids.add(entry.student().getId())) {
+                    students.add(entry.student());
+                }
+            }
+            return students;
+        }
+
+        List<Student> since(long startSequence) {
+            long end = sequence.get();
+            List<Student> students = new ArrayList<>();
+            for (long s = Math.max(startSequence, end - slots.length()); s < end; s++) {
+                Entry entry = slots.get(index(s));
+                if (entry != null && entry.sequence() == s && entry.student() != null) {
+                    students.add(entry.student());
+                }
+            }
+            return students;
+        }
+
+        private int index(long s) {
+            return (int) (s % slots.length());
+        }
+    }
+}
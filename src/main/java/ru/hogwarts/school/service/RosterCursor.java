@@ -0,0 +1,53 @@
+package ru.hogwarts.school.service;
+
+import ru.hogwarts.school.dto.StudentSummary;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position after the last student of a roster page: the sort it was taken with, the student's id
+ * and the value of the sort key, encoded as a URL-safe token.
+ */
+record RosterCursor(String sort, long id, String key) {
+
+    static RosterCursor after(String sort, StudentService.RosterOrder order, StudentSummary last) {
+        String key = switch (order) {
+            case ID -> "";
+            case NAME -> last.name();
+            case AGE -> String.valueOf(last.age() == null ? StudentService.NO_AGE : last.age());
+        };
+        return new RosterCursor(sort, last.id(), key);
+    }
+
+    static RosterCursor decode(String token, String expectedSort) {
+        String decoded;
+        try {
+            decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Malformed cursor", e);
+        }
+        String[] parts = decoded.split("\n", 3);
+        if (parts.length != 3 || !parts[0].equals(expectedSort)) {
+            throw new IllegalArgumentException("Cursor does not belong to sort " + expectedSort);
+        }
+        try {
+            return new RosterCursor(parts[0], Long.parseLong(parts[1]), parts[2]);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Malformed cursor", e);
+        }
+    }
+
+    String encode() {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((sort + "\n" + id + "\n" + key).getBytes(StandardCharsets.UTF_8));
+    }
+
+    int ageKey() {
+        try {
+            return Integer.parseInt(key);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Malformed cursor", e);
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package ru.hogwarts.school.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.hogwarts.school.config.CacheConfiguration;
+import ru.hogwarts.school.dto.StudentBatchItem;
+import ru.hogwarts.school.dto.StudentBatchReport;
+import ru.hogwarts.school.dto.StudentBatchResult;
+import ru.hogwarts.school.model.Student;
+import ru.hogwarts.school.repository.StudentRepository;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Creates and updates students in chunks, one transaction per chunk, so that Hibernate can send
+ * the inserts as JDBC batches. A chunk that fails to commit is retried item by item to find the
+ * items at fault.
+ */
+@Service
+public class StudentBatchService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StudentBatchService.class);
+
+    private final StudentRepository studentRepository;
+    private final StudentChangePublisher changePublisher;
+    private final Cache studentCache;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+
+    public StudentBatchService(StudentRepository studentRepository,
+                               StudentChangePublisher changePublisher,
+                               CacheManager cacheManager,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${student.batch.chunk-size:500}") int chunkSize) {
+        this.studentRepository = studentRepository;
+        this.changePublisher = changePublisher;
+        this.studentCache = cacheManager.getCache(CacheConfiguration.STUDENTS);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Saves the items in the order they are read. Reading stops at the first item that cannot be
+     * read; everything before it is saved and the failure is reported at its index.
+     */
+    public StudentBatchReport saveStudents(Iterator<StudentBatchItem> items) {
+        List<StudentBatchResult> results = new ArrayList<>();
+        List<StudentBatchItem> chunk = new ArrayList<>(chunkSize);
+        int index = 0;
+        String readError = null;
+        while (readError == null) {
+            try {
+                if (!items.hasNext()) {
+                    break;
+                }
+                chunk.add(items.next());
+            } catch (RuntimeException e) {
+                readError = "Malformed student: " + e.getMessage();
+            }
+            if (chunk.size() == chunkSize) {
+                results.addAll(saveChunk(chunk, index));
+                index += chunk.size();
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            results.addAll(saveChunk(chunk, index));
+            index += chunk.size();
+        }
+        if (readError != null) {
+            results.add(StudentBatchResult.failed(index, null, readError));
+        }
+        return StudentBatchReport.of(results);
+    }
+
+    private List<StudentBatchResult> saveChunk(List<StudentBatchItem> chunk, int firstIndex) {
+        try {
+            return transactionTemplate.execute(status -> saveInTransaction(chunk, firstIndex));
+        } catch (RuntimeException e) {
+            if (chunk.size() == 1) {
+                return List.of(StudentBatchResult.failed(firstIndex, chunk.get(0).id(), rootMessage(e)));
+            }
+            logger.debug("Student batch chunk at {} failed, retrying item by item", firstIndex, e);
+            List<StudentBatchResult> results = new ArrayList<>(chunk.size());
+            for (int i = 0; i < chunk.size(); i++) {
+                results.addAll(saveChunk(List.of(chunk.get(i)), firstIndex + i));
+            }
+            return results;
+        }
+    }
+
+    private List<StudentBatchResult> saveInTransaction(List<StudentBatchItem> chunk, int firstIndex) {
+        Set<Long> ids = chunk.stream()
+                .map(StudentBatchItem::id)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Map<Long, Student> existing = ids.isEmpty()
+                ? Map.of()
+                : studentRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Student::getId, Function.identity()));
+
+        StudentBatchResult[] results = new StudentBatchResult[chunk.size()];
+        Map<Integer, Student> created = new LinkedHashMap<>();
+        for (int i = 0; i < chunk.size(); i++) {
+            StudentBatchItem item = chunk.get(i);
+            String error = validate(item);
+            if (error != null) {
+                results[i] = StudentBatchResult.failed(firstIndex + i, item.id(), error);
+            } else if (item.id() == null) {
+                created.put(i, new Student(item.name(), item.age()));
+            } else {
+                Student student = existing.get(item.id());
+                if (student == null) {
+                    results[i] = StudentBatchResult.failed(firstIndex + i, item.id(), "Student not found");
+                    continue;
+                }
+                Student previous = StudentChangePublisher.copyOf(student);
+                student.setName(item.name());
+                student.setAge(item.age());
+                studentCache.evict(student.getId());
+                changePublisher.updated(previous, student);
+                results[i] = StudentBatchResult.saved(firstIndex + i, student.getId());
+            }
+        }
+        studentRepository.saveAll(created.values());
+        created.forEach((i, student) -> {
+            changePublisher.created(student);
+            results[i] = StudentBatchResult.saved(firstIndex + i, student.getId());
+        });
+        studentRepository.flush();
+        return Arrays.asList(results);
+    }
+
+    private static String validate(StudentBatchItem item) {
+        if (item == null) {
+            return "Student is missing";
+        }
+        if (item.name() == null || item.name().isBlank()) {
+            return "Name is required";
+        }
+        if (item.age() == null || item.age() < 0) {
+            return "Age must be a non-negative number";
+        }
+        return null;
+    }
+
+    private static String rootMessage(Throwable e) {
+        Throwable cause = e;
+        while (cause.getCause() != null && cause.getCause() != cause) {
+            cause = cause.getCause();
+        }
+        return cause.getMessage();
+    }
+}
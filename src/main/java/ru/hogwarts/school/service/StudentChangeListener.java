@@ -0,0 +1,19 @@
+package ru.hogwarts.school.service;
+
+import ru.hogwarts.school.model.Student;
+
+/**
+ * Notified by {@link StudentService} after a change to a student has been committed.
+ * {@code previous} is a copy of the student as it was before the change.
+ */
+public interface StudentChangeListener {
+
+    default void onCreated(Student student) {
+    }
+
+    default void onUpdated(Student previous, Student current) {
+    }
+
+    default void onDeleted(Student previous) {
+    }
+}
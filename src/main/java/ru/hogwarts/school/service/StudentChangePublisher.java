@@ -0,0 +1,70 @@
+package ru.hogwarts.school.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.hogwarts.school.model.Student;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Delivers student changes to every {@link StudentChangeListener} once the current transaction
+ * commits, or right away outside a transaction. Students are copied when the change is recorded,
+ * so listeners see the state as of the commit.
+ */
+@Component
+public class StudentChangePublisher {
+
+    private static final Logger logger = LoggerFactory.getLogger(StudentChangePublisher.class);
+
+    private final List<StudentChangeListener> listeners;
+
+    public StudentChangePublisher(List<StudentChangeListener> listeners) {
+        this.listeners = listeners;
+    }
+
+    public void created(Student student) {
+        Student current = copyOf(student);
+        afterCommit(listener -> listener.onCreated(current));
+    }
+
+    public void updated(Student previous, Student student) {
+        Student current = copyOf(student);
+        afterCommit(listener -> listener.onUpdated(previous, current));
+    }
+
+    public void deleted(Student previous) {
+        afterCommit(listener -> listener.onDeleted(previous));
+    }
+
+    static Student copyOf(Student student) {
+        Student copy = new Student(student.getId(), student.getName(), student.getAge());
+        copy.setFaculty(student.getFaculty());
+        return copy;
+    }
+
+    private void afterCommit(Consumer<StudentChangeListener> notification) {
+        Runnable dispatch = () -> {
+            for (StudentChangeListener listener : listeners) {
+                try {
+                    notification.accept(listener);
+                } catch (RuntimeException e) {
+                    logger.warn("Student change listener {} failed", listener.getClass().getSimpleName(), e);
+                }
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    dispatch.run();
+                }
+            });
+        } else {
+            dispatch.run();
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package ru.hogwarts.school.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import jakarta.persistence.EntityManager;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.hogwarts.school.model.Student;
+import ru.hogwarts.school.repository.StudentRepository;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+/**
+ * Writes every student to an output stream while reading them from a database cursor, so memory
+ * use does not depend on the number of students.
+ */
+@Service
+public class StudentExportService {
+
+    public enum Format {
+        NDJSON, CSV;
+
+        public static Format of(String name) {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT));
+        }
+    }
+
+    private final StudentRepository studentRepository;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+
+    public StudentExportService(StudentRepository studentRepository,
+                                EntityManager entityManager,
+                                ObjectMapper objectMapper,
+                                PlatformTransactionManager transactionManager) {
+        this.studentRepository = studentRepository;
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    public void export(Format format, OutputStream out) throws IOException {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                try (Stream<Student> students = studentRepository.streamAllByOrderByIdAsc()) {
+                    if (format == Format.CSV) {
+                        writeCsv(students.iterator(), out);
+                    } else {
+                        writeNdjson(students.iterator(), out);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private void writeNdjson(Iterator<Student> students, OutputStream out) throws IOException {
+        try (SequenceWriter writer = objectMapper.writer()
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .withRootValueSeparator("\n")
+                .writeValues(out)) {
+            while (students.hasNext()) {
+                Student student = students.next();
+                writer.write(student);
+                entityManager.detach(student);
+            }
+        }
+        out.write('\n');
+    }
+
+    private void writeCsv(Iterator<Student> students, OutputStream out) throws IOException {
+        Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        writer.write("id,name,age,facultyId\n");
+        while (students.hasNext()) {
+            Student student = students.next();
+            writer.write(String.valueOf(student.getId()));
+            writer.write(',');
+            writer.write(csvField(student.getName()));
+            writer.write(',');
+            writer.write(String.valueOf(student.getAge()));
+            writer.write(',');
+            if (student.getFaculty() != null) {
+                writer.write(String.valueOf(student.getFaculty().getId()));
+            }
+            writer.write('\n');
+            entityManager.detach(student);
+        }
+        writer.flush();
+    }
+
+    private static String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,382 @@
+package ru.hogwarts.school.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+import ru.hogwarts.school.dto.StudentImportReport;
+import ru.hogwarts.school.model.Faculty;
+import ru.hogwarts.school.model.Student;
+import ru.hogwarts.school.model.StudentImportChunk;
+import ru.hogwarts.school.model.StudentImportJob;
+import ru.hogwarts.school.model.StudentImportRejection;
+import ru.hogwarts.school.repository.FacultyRepository;
+import ru.hogwarts.school.repository.StudentImportChunkRepository;
+import ru.hogwarts.school.repository.StudentImportJobRepository;
+import ru.hogwarts.school.repository.StudentImportRejectionRepository;
+import ru.hogwarts.school.repository.StudentRepository;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * Imports students from CSV rosters of {@code name,age[,faculty]} lines.
+ * <p>
+ * The uploaded file is kept until the import completes. One thread reads it, checks each row on
+ * its own and against the rows before it, and cuts it into chunks; a pool of workers checks each
+ * chunk against the database and writes it in one transaction, together with its rejected rows
+ * and a {@link StudentImportChunk} marker. Resuming an import re-reads the file and skips the
+ * chunks that have a marker.
+ */
+@Service
+public class StudentImportService {
+
+    static final int MIN_AGE = 16;
+
+    private static final Logger logger = LoggerFactory.getLogger(StudentImportService.class);
+    private static final int MAX_ATTEMPTS = 3;
+    private static final int REPORTED_REJECTIONS = 100;
+    private static final int MAX_LINE_LENGTH = 1000;
+
+    private final StudentRepository studentRepository;
+    private final FacultyRepository facultyRepository;
+    private final StudentImportJobRepository jobRepository;
+    private final StudentImportChunkRepository chunkRepository;
+    private final StudentImportRejectionRepository rejectionRepository;
+    private final StudentChangePublisher changePublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final Path importDir;
+    private final int chunkSize;
+    private final ThreadPoolExecutor workers;
+    private final ExecutorService jobRunner;
+    private final Set<Long> activeJobs = ConcurrentHashMap.newKeySet();
+
+    public StudentImportService(StudentRepository studentRepository,
+                                FacultyRepository facultyRepository,
+                                StudentImportJobRepository jobRepository,
+                                StudentImportChunkRepository chunkRepository,
+                                StudentImportRejectionRepository rejectionRepository,
+                                StudentChangePublisher changePublisher,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${student.import.dir:${java.io.tmpdir}/student-imports}") String importDir,
+                                @Value("${student.import.chunk-size:500}") int chunkSize,
+                                @Value("${student.import.workers:4}") int workerCount,
+                                @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.studentRepository = studentRepository;
+        this.facultyRepository = facultyRepository;
+        this.jobRepository = jobRepository;
+        this.chunkRepository = chunkRepository;
+        this.rejectionRepository = rejectionRepository;
+        this.changePublisher = changePublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.importDir = Path.of(importDir.trim());
+        this.chunkSize = chunkSize;
+        this.workers = new ThreadPoolExecutor(workerCount, workerCount, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(workerCount * 2), WorkerThreads.of("student-import-worker-", virtualThreads),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        this.jobRunner = Executors.newCachedThreadPool(WorkerThreads.of("student-import-", virtualThreads));
+    }
+
+    public StudentImportReport startImport(MultipartFile file) throws IOException {
+        Files.createDirectories(importDir);
+        Path source = importDir.resolve(UUID.randomUUID() + ".csv");
+        file.transferTo(source);
+        StudentImportJob job = jobRepository.save(new StudentImportJob(file.getOriginalFilename(), source.toString()));
+        launch(job.getId(), source);
+        return StudentImportReport.of(job, List.of());
+    }
+
+    public Optional<StudentImportReport> getReport(long jobId) {
+        return jobRepository.findById(jobId).map(job -> StudentImportReport.of(job,
+                rejectionRepository.findByJobIdOrderByRowNumberAsc(jobId, PageRequest.of(0, REPORTED_REJECTIONS))));
+    }
+
+    /**
+     * Restarts an import that failed or was interrupted, from the first chunk that was not committed.
+     * Completed imports and imports running in this instance are returned as they are.
+     */
+    public Optional<StudentImportReport> resume(long jobId) {
+        Optional<StudentImportJob> found = jobRepository.findById(jobId);
+        if (found.isEmpty()) {
+            return Optional.empty();
+        }
+        StudentImportJob job = found.get();
+        if (job.getStatus() != StudentImportJob.Status.COMPLETED && !activeJobs.contains(jobId)) {
+            job.setStatus(StudentImportJob.Status.RUNNING);
+            job.setError(null);
+            job.setFinishedAt(null);
+            jobRepository.save(job);
+            launch(jobId, Path.of(job.getSourcePath()));
+        }
+        return getReport(jobId);
+    }
+
+    private void launch(long jobId, Path source) {
+        if (!activeJobs.add(jobId)) {
+            return;
+        }
+        jobRunner.execute(() -> {
+            try {
+                run(jobId, source);
+            } finally {
+                activeJobs.remove(jobId);
+            }
+        });
+    }
+
+    private void run(long jobId, Path source) {
+        Set<Integer> committedChunks = chunkRepository.findCommittedChunkIndexes(jobId);
+        Map<String, Optional<Long>> facultyIds = new ConcurrentHashMap<>();
+        AtomicBoolean aborted = new AtomicBoolean();
+        List<Future<?>> pending = new ArrayList<>();
+        long dataRows = 0;
+        try (BufferedReader reader = Files.newBufferedReader(source, StandardCharsets.UTF_8)) {
+            Set<String> names = new HashSet<>();
+            List<ImportRow> chunk = new ArrayList<>(chunkSize);
+            int chunkIndex = 0;
+            long lineNumber = 0;
+            String line;
+            while (!aborted.get() && (line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank() || lineNumber == 1 && isHeader(line)) {
+                    continue;
+                }
+                dataRows++;
+                chunk.add(parse(lineNumber, line, names));
+                if (chunk.size() == chunkSize) {
+                    submit(jobId, chunkIndex++, chunk, committedChunks, facultyIds, aborted, pending);
+                    chunk = new ArrayList<>(chunkSize);
+                }
+            }
+            if (!chunk.isEmpty() && !aborted.get()) {
+                submit(jobId, chunkIndex, chunk, committedChunks, facultyIds, aborted, pending);
+            }
+            for (Future<?> future : pending) {
+                future.get();
+            }
+            finish(jobId, StudentImportJob.Status.COMPLETED, dataRows, null);
+            Files.deleteIfExists(source);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abort(aborted, pending);
+            finish(jobId, StudentImportJob.Status.FAILED, null, "Import was interrupted");
+        } catch (ExecutionException e) {
+            logger.warn("Student import {} failed", jobId, e.getCause());
+            abort(aborted, pending);
+            finish(jobId, StudentImportJob.Status.FAILED, null, e.getCause().getMessage());
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Student import {} failed", jobId, e);
+            abort(aborted, pending);
+            finish(jobId, StudentImportJob.Status.FAILED, null, e.getMessage());
+        }
+    }
+
+    private void submit(long jobId, int chunkIndex, List<ImportRow> rows, Set<Integer> committedChunks,
+                        Map<String, Optional<Long>> facultyIds, AtomicBoolean aborted, List<Future<?>> pending) {
+        if (committedChunks.contains(chunkIndex)) {
+            return;
+        }
+        pending.add(workers.submit(() -> {
+            if (aborted.get()) {
+                return;
+            }
+            try {
+                writeChunk(jobId, chunkIndex, rows, facultyIds);
+            } catch (RuntimeException e) {
+                aborted.set(true);
+                throw e;
+            }
+        }));
+    }
+
+    /**
+     * Keeps the chunks that have not started from running and waits for the ones that have, so the job
+     * is only released for a resume once none of its chunks can still commit.
+     */
+    private static void abort(AtomicBoolean aborted, List<Future<?>> pending) {
+        aborted.set(true);
+        boolean interrupted = Thread.interrupted();
+        for (Future<?> future : pending) {
+            while (true) {
+                try {
+                    future.get();
+                    break;
+                } catch (ExecutionException | CancellationException e) {
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Retried when the commit fails, typically because another writer took one of the names
+     * after it was checked; the next attempt then rejects that row.
+     */
+    private void writeChunk(long jobId, int chunkIndex, List<ImportRow> rows, Map<String, Optional<Long>> facultyIds) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> writeInTransaction(jobId, chunkIndex, rows, facultyIds));
+                return;
+            } catch (RuntimeException e) {
+                if (attempt == MAX_ATTEMPTS) {
+                    throw e;
+                }
+                logger.debug("Chunk {} of student import {} failed, retrying", chunkIndex, jobId, e);
+            }
+        }
+    }
+
+    private void writeInTransaction(long jobId, int chunkIndex, List<ImportRow> rows,
+                                    Map<String, Optional<Long>> facultyIds) {
+        StudentImportJob job = jobRepository.getReferenceById(jobId);
+        Set<String> existingNames = studentRepository.findExistingNames(rows.stream()
+                .filter(row -> row.rejection() == null)
+                .map(ImportRow::name)
+                .collect(Collectors.toSet()));
+        List<Student> students = new ArrayList<>(rows.size());
+        List<StudentImportRejection> rejections = new ArrayList<>();
+        for (ImportRow row : rows) {
+            String rejection = row.rejection();
+            Long facultyId = null;
+            if (rejection == null && existingNames.contains(row.name())) {
+                rejection = "A student with this name already exists";
+            }
+            if (rejection == null && row.facultyName() != null) {
+                facultyId = facultyIds.computeIfAbsent(row.facultyName().toLowerCase(Locale.ROOT),
+                        name -> facultyRepository.findFirstByNameIgnoreCaseOrderByIdAsc(row.facultyName())
+                                .map(Faculty::getId)).orElse(null);
+                if (facultyId == null) {
+                    rejection = "Unknown faculty " + row.facultyName();
+                }
+            }
+            if (rejection != null) {
+                rejections.add(new StudentImportRejection(job, row.lineNumber(), rejection,
+                        row.line().length() > MAX_LINE_LENGTH ? row.line().substring(0, MAX_LINE_LENGTH) : row.line()));
+                continue;
+            }
+            Student student = new Student(row.name(), row.age());
+            if (facultyId != null) {
+                student.setFaculty(facultyRepository.getReferenceById(facultyId));
+            }
+            students.add(student);
+        }
+        studentRepository.saveAll(students);
+        students.forEach(changePublisher::created);
+        rejectionRepository.saveAll(rejections);
+        chunkRepository.save(new StudentImportChunk(job, chunkIndex, rows.get(0).lineNumber(), rows.size()));
+        jobRepository.addProgress(jobId, rows.size(), students.size(), rejections.size());
+    }
+
+    private void finish(long jobId, StudentImportJob.Status status, Long totalRows, String error) {
+        try {
+            transactionTemplate.executeWithoutResult(transaction -> jobRepository.findById(jobId).ifPresent(job -> {
+                job.setStatus(status);
+                if (totalRows != null) {
+                    job.setTotalRows(totalRows);
+                }
+                job.setError(error);
+                job.setFinishedAt(Instant.now());
+            }));
+        } catch (RuntimeException e) {
+            logger.warn("Failed to record the outcome of student import {}", jobId, e);
+        }
+    }
+
+    /**
+     * Checks what can be checked without the database. Names are reserved by the first row that
+     * uses them, so later duplicates within the file are rejected.
+     */
+    private static ImportRow parse(long lineNumber, String line, Set<String> names) {
+        List<String> fields = splitCsv(line);
+        if (fields.size() < 2 || fields.size() > 3) {
+            return ImportRow.rejected(lineNumber, line, "Expected name,age[,faculty]");
+        }
+        String name = fields.get(0).trim();
+        if (name.isEmpty()) {
+            return ImportRow.rejected(lineNumber, line, "Name is required");
+        }
+        int age;
+        try {
+            age = Integer.parseInt(fields.get(1).trim());
+        } catch (NumberFormatException e) {
+            return ImportRow.rejected(lineNumber, line, "Age is not a number");
+        }
+        if (age < MIN_AGE) {
+            return ImportRow.rejected(lineNumber, line, "Age must be at least " + MIN_AGE);
+        }
+        if (!names.add(name)) {
+            return ImportRow.rejected(lineNumber, line, "Duplicate name in file");
+        }
+        String faculty = fields.size() == 3 && !fields.get(2).isBlank() ? fields.get(2).trim() : null;
+        return new ImportRow(lineNumber, line, name, age, faculty, null);
+    }
+
+    static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private static boolean isHeader(String line) {
+        List<String> fields = splitCsv(line);
+        return fields.size() >= 2
+                && fields.get(0).trim().equalsIgnoreCase("name")
+                && fields.get(1).trim().equalsIgnoreCase("age");
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        jobRunner.shutdownNow();
+        for (Runnable notStarted : workers.shutdownNow()) {
+            ((Future<?>) notStarted).cancel(false);
+        }
+    }
+
+    private record ImportRow(long lineNumber, String line, String name, int age, String facultyName,
+                             String rejection) {
+
+        static ImportRow rejected(long lineNumber, String line, String rejection) {
+            return new ImportRow(lineNumber, line, null, 0, null, rejection);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package ru.hogwarts.school.service;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.hogwarts.school.model.Student;
+import ru.hogwarts.school.repository.NameView;
+import ru.hogwarts.school.repository.StudentRepository;
+
+import java.util.List;
+
+/**
+ * Substring search over student names, kept in sync with committed changes made through
+ * {@link StudentService} and rebuilt periodically to pick up changes made around it.
+ */
+@Component
+public class StudentNameIndex extends NameSearchIndex implements StudentChangeListener {
+
+    private final StudentRepository studentRepository;
+
+    public StudentNameIndex(StudentRepository studentRepository) {
+        this.studentRepository = studentRepository;
+    }
+
+    @Override
+    protected List<NameView> loadNames() {
+        return studentRepository.findAllNames();
+    }
+
+    @Override
+    @Scheduled(initialDelayString = "${search.index.rebuild-interval:PT30M}",
+            fixedDelayString = "${search.index.rebuild-interval:PT30M}")
+    public void rebuild() {
+        super.rebuild();
+    }
+
+    @Override
+    public void onCreated(Student student) {
+        put(student.getId(), student.getName());
+    }
+
+    @Override
+    public void onUpdated(Student previous, Student current) {
+        put(current.getId(), current.getName());
+    }
+
+    @Override
+    public void onDeleted(Student previous) {
+        remove(previous.getId());
+    }
+}
@@ -1,7 +1,19 @@
 package ru.hogwarts.school.service;
 
+import jakarta.transaction.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
+import ru.hogwarts.school.config.CacheConfiguration;
+import ru.hogwarts.school.dto.CursorPage;
+import ru.hogwarts.school.dto.LookupResult;
+import ru.hogwarts.school.dto.RosterPage;
+import ru.hogwarts.school.dto.SearchHit;
+import ru.hogwarts.school.dto.StudentFacultyView;
+import ru.hogwarts.school.dto.StudentSummary;
 import ru.hogwarts.school.model.Faculty;
 import ru.hogwarts.school.model.Student;
 import ru.hogwarts.school.repository.StudentRepository;
@@ -12,27 +24,177 @@ import java.util.stream.Collectors;
 @Service
 public class StudentService {
 
+    public static final int MAX_SCROLL_LIMIT = 1000;
+    public static final int MAX_SEARCH_LIMIT = 100;
+    public static final int MAX_LOOKUP_IDS = 10_000;
+    static final int NO_AGE = -1;
+    /**
+     * Ids per {@code IN} query, well below the bind parameter limits of the JDBC drivers in use.
+     */
+    private static final int LOOKUP_CHUNK_SIZE = 1000;
+
     @Autowired
     private final StudentRepository studentRepository;
+    private final StudentStatistics studentStatistics;
+    private final StudentChangePublisher changePublisher;
+    private final RecentStudents recentStudents;
+    private final StudentNameIndex nameIndex;
 
-    public StudentService(StudentRepository studentRepository) {
+    public StudentService(StudentRepository studentRepository, StudentStatistics studentStatistics,
+                          StudentChangePublisher changePublisher, RecentStudents recentStudents,
+                          StudentNameIndex nameIndex) {
         this.studentRepository = studentRepository;
+        this.studentStatistics = studentStatistics;
+        this.changePublisher = changePublisher;
+        this.recentStudents = recentStudents;
+        this.nameIndex = nameIndex;
     }
 
+    @Transactional
     public Student createStudent(Student student) {
-        return studentRepository.save(student);
+        Student created = studentRepository.save(student);
+        changePublisher.created(created);
+        return created;
     }
 
+    @Cacheable(cacheNames = CacheConfiguration.STUDENTS, sync = true)
     public Student findStudent(long id) {
-        return studentRepository.findById(id).orElse(null);
+        return studentRepository.findWithFacultyById(id).orElse(null);
+    }
+
+    public Optional<StudentFacultyView> findStudentView(long id) {
+        return studentRepository.findViewById(id);
+    }
+
+    /**
+     * Reads the views in id order, chunked like {@link #lookupStudents(List)}. Repeated ids are returned once.
+     */
+    public List<StudentFacultyView> findStudentViews(Collection<Long> ids) {
+        List<Long> sortedIds = ids.stream().filter(Objects::nonNull).distinct().sorted().toList();
+        List<StudentFacultyView> views = new ArrayList<>(sortedIds.size());
+        for (int from = 0; from < sortedIds.size(); from += LOOKUP_CHUNK_SIZE) {
+            views.addAll(studentRepository.findViewsByIdIn(
+                    sortedIds.subList(from, Math.min(from + LOOKUP_CHUNK_SIZE, sortedIds.size()))));
+        }
+        return views;
+    }
+
+    public CursorPage<StudentFacultyView> scrollStudentViews(long after, int limit) {
+        return CursorPage.of(studentRepository.findViewsAfter(after, limit(limit)), StudentFacultyView::id);
+    }
+
+    public List<Student> findStudents(Collection<Long> ids) {
+        return studentRepository.findAllById(ids);
+    }
+
+    /**
+     * Resolves the ids with as few {@code IN} queries as the chunk size allows. Repeated ids are returned once.
+     */
+    public LookupResult<Student> lookupStudents(List<Long> ids) {
+        List<Long> distinctIds = ids.stream().filter(Objects::nonNull).distinct().toList();
+        Map<Long, Student> found = new HashMap<>();
+        for (int from = 0; from < distinctIds.size(); from += LOOKUP_CHUNK_SIZE) {
+            List<Long> chunk = distinctIds.subList(from, Math.min(from + LOOKUP_CHUNK_SIZE, distinctIds.size()));
+            for (Student student : studentRepository.findAllById(chunk)) {
+                found.put(student.getId(), student);
+            }
+        }
+        return LookupResult.of(distinctIds, found::get);
     }
 
+    @Transactional
+    @CacheEvict(cacheNames = CacheConfiguration.STUDENTS, key = "#student.id", condition = "#student.id != null")
     public Student editStudent(Student student) {
-        return studentRepository.save(student);
+        Student previous = student.getId() == null
+                ? null
+                : studentRepository.findById(student.getId()).map(StudentChangePublisher::copyOf).orElse(null);
+        Student edited = studentRepository.save(student);
+        if (previous == null) {
+            changePublisher.created(edited);
+        } else {
+            changePublisher.updated(previous, edited);
+        }
+        return edited;
     }
 
+    @Transactional
+    @CacheEvict(cacheNames = CacheConfiguration.STUDENTS, key = "#id")
     public void deleteStudent(long id) {
-        studentRepository.deleteById(id);
+        Optional<Student> student = studentRepository.findById(id);
+        if (student.isEmpty()) {
+            return;
+        }
+        Student previous = StudentChangePublisher.copyOf(student.get());
+        studentRepository.delete(student.get());
+        changePublisher.deleted(previous);
+    }
+
+    public CursorPage<Student> scrollStudents(long after, int limit) {
+        Slice<Student> slice = studentRepository.findByIdGreaterThanOrderByIdAsc(after,
+                PageRequest.of(0, Math.max(1, Math.min(limit, MAX_SCROLL_LIMIT))));
+        return CursorPage.of(slice, Student::getId);
+    }
+
+    public List<Student> findByFaculty(long facultyId) {
+        return studentRepository.findByFacultyId(facultyId);
+    }
+
+    /**
+     * One page of the students of a faculty ordered by {@code sort} ({@code id}, {@code name} or {@code age})
+     * and {@code direction}; students without an age sort as the youngest.
+     *
+     * @throws IllegalArgumentException if the sort is unknown or the cursor was issued for another sort
+     */
+    public RosterPage findRoster(long facultyId, String sort, String direction, String cursor, int limit) {
+        RosterOrder order = RosterOrder.of(sort);
+        boolean descending = switch (direction.toLowerCase(Locale.ROOT)) {
+            case "asc" -> false;
+            case "desc" -> true;
+            default -> throw new IllegalArgumentException("Unknown direction " + direction);
+        };
+        String sortKey = order.name().toLowerCase(Locale.ROOT) + "," + (descending ? "desc" : "asc");
+        RosterCursor after = cursor == null || cursor.isBlank() ? null : RosterCursor.decode(cursor, sortKey);
+        Long afterId = after == null ? null : after.id();
+        PageRequest page = limit(limit);
+        Slice<StudentSummary> slice = switch (order) {
+            case ID -> descending
+                    ? studentRepository.findRosterByIdDesc(facultyId, afterId, page)
+                    : studentRepository.findRosterByIdAsc(facultyId, afterId, page);
+            case NAME -> {
+                String name = after == null ? null : after.key();
+                yield descending
+                        ? studentRepository.findRosterByNameDesc(facultyId, name, afterId, page)
+                        : studentRepository.findRosterByNameAsc(facultyId, name, afterId, page);
+            }
+            case AGE -> {
+                Integer age = after == null ? null : after.ageKey();
+                yield descending
+                        ? studentRepository.findRosterByAgeDesc(facultyId, age, afterId, page)
+                        : studentRepository.findRosterByAgeAsc(facultyId, age, afterId, page);
+            }
+        };
+        List<StudentSummary> items = slice.getContent();
+        String nextCursor = slice.hasNext() && !items.isEmpty()
+                ? RosterCursor.after(sortKey, order, items.get(items.size() - 1)).encode()
+                : null;
+        return new RosterPage(items, nextCursor);
+    }
+
+    /**
+     * Student count and age aggregates of every faculty that has students, keyed by faculty id.
+     */
+    @Cacheable(cacheNames = CacheConfiguration.FACULTY_STATS, key = "'all'", sync = true)
+    public Map<Long, StudentStatistics.Snapshot> getStatisticsByFaculty() {
+        Map<Long, StudentStatistics.Snapshot> statistics = new HashMap<>();
+        for (StudentRepository.FacultyAgeStats stats : studentRepository.statsGroupedByFaculty()) {
+            statistics.put(stats.getFacultyId(), new StudentStatistics.Snapshot(stats.getCount(),
+                    stats.getAverageAge(), stats.getMinAge(), stats.getMaxAge()));
+        }
+        return statistics;
+    }
+
+    public List<SearchHit> searchByName(String query, int limit) {
+        return nameIndex.search(query, Math.max(1, Math.min(limit, MAX_SEARCH_LIMIT)));
     }
 
     public List<Student> findByAge(int age) {
@@ -44,14 +206,59 @@ public class StudentService {
     }
 
     public Integer getNumberOfStudents() {
-        return studentRepository.getNumberOfStudents();
+        return Math.toIntExact(studentStatistics.snapshot().count());
     }
 
     public Integer getAvgAgeOfStudents() {
-        return studentRepository.getAvgAgeOfStudents();
+        Double averageAge = studentStatistics.snapshot().averageAge();
+        return averageAge == null ? null : averageAge.intValue();
+    }
+
+    public StudentStatistics.Snapshot getStatistics() {
+        return studentStatistics.snapshot();
+    }
+
+    public List<StudentStatistics.AgeBucket> getAgeDistribution(int width) {
+        return studentStatistics.distribution(width);
+    }
+
+    public long countByAgeBetween(int min, int max) {
+        return studentStatistics.countBetween(min, max);
+    }
+
+    public Integer getAgePercentile(double percent) {
+        return studentStatistics.percentile(percent);
+    }
+
+    public List<Student> findYoungest(int n) {
+        return studentRepository.findByAgeNotNullOrderByAgeAscIdAsc(limit(n));
+    }
+
+    public List<Student> findOldest(int n) {
+        return studentRepository.findByAgeNotNullOrderByAgeDescIdAsc(limit(n));
     }
 
     public List<Student> getLastStudents() {
-        return studentRepository.getLastFiveStudents();
+        return getLatestStudents(5);
+    }
+
+    public List<Student> getLatestStudents(int n) {
+        return recentStudents.latest(n);
+    }
+
+    private static PageRequest limit(int n) {
+        return PageRequest.of(0, Math.max(1, Math.min(n, MAX_SCROLL_LIMIT)));
+    }
+
+    public enum RosterOrder {
+        ID, NAME, AGE;
+
+        static RosterOrder of(String value) {
+            try {
+                return valueOf(value.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown sort " + value, e);
+            }
+        }
     }
 }
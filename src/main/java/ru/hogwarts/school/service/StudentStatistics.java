@@ -0,0 +1,194 @@
+package ru.hogwarts.school.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.hogwarts.school.model.Student;
+import ru.hogwarts.school.repository.StudentRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Student count and age aggregates kept in memory. Loaded from the database on startup, then updated
+ * from committed changes made through {@link StudentService} and periodically reconciled against the
+ * database, which also picks up changes made around the service. Changes that arrive before the first
+ * load are already part of what it reads, so they are not applied on top of it.
+ * <p>
+ * The student count covers every row; the age figures only the students whose age is known.
+ */
+@Component
+public class StudentStatistics implements StudentChangeListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(StudentStatistics.class);
+    private static final int MAX_LOAD_ATTEMPTS = 5;
+
+    private final StudentRepository studentRepository;
+    private final AgeHistogram ageHistogram = new AgeHistogram();
+    private long studentCount;
+    private long sumOfAges;
+    private long version;
+    private volatile Snapshot snapshot;
+
+    public StudentStatistics(StudentRepository studentRepository) {
+        this.studentRepository = studentRepository;
+    }
+
+    public Snapshot snapshot() {
+        ensureLoaded();
+        return snapshot;
+    }
+
+    public long countBetween(int minAge, int maxAge) {
+        ensureLoaded();
+        synchronized (this) {
+            return ageHistogram.countBetween(minAge, maxAge);
+        }
+    }
+
+    /**
+     * Non-empty age buckets of the given width, the first one starting at the youngest age.
+     */
+    public List<AgeBucket> distribution(int width) {
+        ensureLoaded();
+        int bucketWidth = Math.max(1, width);
+        List<AgeBucket> buckets = new ArrayList<>();
+        synchronized (this) {
+            if (ageHistogram.total() == 0) {
+                return buckets;
+            }
+            for (int from = ageHistogram.minAge(); from <= ageHistogram.maxAge(); from += bucketWidth) {
+                int to = Math.min(from + bucketWidth - 1, AgeHistogram.MAX_AGE);
+                long students = ageHistogram.countBetween(from, to);
+                if (students > 0) {
+                    buckets.add(new AgeBucket(from, to, students));
+                }
+            }
+        }
+        return buckets;
+    }
+
+    /**
+     * Nearest-rank percentile of student ages, or {@code null} when there are no students.
+     */
+    public Integer percentile(double percent) {
+        ensureLoaded();
+        synchronized (this) {
+            long total = ageHistogram.total();
+            if (total == 0) {
+                return null;
+            }
+            long rank = Math.max(1, (long) Math.ceil(Math.min(100, Math.max(0, percent)) / 100 * total));
+            return ageHistogram.ageAtRank(rank);
+        }
+    }
+
+    @Override
+    public synchronized void onCreated(Student student) {
+        if (changed()) {
+            studentCount++;
+            add(student.getAge(), 1);
+            publish();
+        }
+    }
+
+    @Override
+    public synchronized void onUpdated(Student previous, Student current) {
+        if (changed()) {
+            add(previous.getAge(), -1);
+            add(current.getAge(), 1);
+            publish();
+        }
+    }
+
+    @Override
+    public synchronized void onDeleted(Student previous) {
+        if (changed()) {
+            studentCount--;
+            add(previous.getAge(), -1);
+            publish();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        ensureLoaded();
+    }
+
+    /**
+     * Rebuilds the aggregates from the database. A change committed while the query runs makes the
+     * result ambiguous, so in that case the incrementally maintained state is kept until the next run.
+     */
+    @Scheduled(initialDelayString = "${student.statistics.reconcile-interval:PT5M}",
+            fixedDelayString = "${student.statistics.reconcile-interval:PT5M}")
+    public void reconcile() {
+        reconcile(false);
+    }
+
+    /**
+     * Returns whether the aggregates are loaded afterwards. Before the first load there is no incremental
+     * state to fall back on, so an ambiguous result is only used when {@code acceptChanges}.
+     */
+    private boolean reconcile(boolean acceptChanges) {
+        long startVersion;
+        synchronized (this) {
+            startVersion = version;
+        }
+        long count = studentRepository.count();
+        List<StudentRepository.AgeCount> ageCounts = studentRepository.countGroupedByAge();
+        synchronized (this) {
+            if (version != startVersion && (snapshot != null || !acceptChanges)) {
+                logger.debug("Students changed during reconciliation, keeping incremental statistics");
+                return snapshot != null;
+            }
+            studentCount = count;
+            ageHistogram.clear();
+            sumOfAges = 0;
+            for (StudentRepository.AgeCount ageCount : ageCounts) {
+                add(ageCount.getAge(), ageCount.getCount());
+            }
+            Snapshot previous = snapshot;
+            publish();
+            if (previous != null && !previous.equals(snapshot)) {
+                logger.info("Student statistics drifted from the database and were reconciled: {} -> {}",
+                        previous, snapshot);
+            }
+            return true;
+        }
+    }
+
+    private void ensureLoaded() {
+        for (int attempt = 1; snapshot == null; attempt++) {
+            reconcile(attempt >= MAX_LOAD_ATTEMPTS);
+        }
+    }
+
+    /**
+     * Records a change; returns whether it should be applied, which it should not before the first load.
+     */
+    private boolean changed() {
+        version++;
+        return snapshot != null;
+    }
+
+    private void add(int age, long delta) {
+        ageHistogram.add(age, delta);
+        sumOfAges += age * delta;
+    }
+
+    private void publish() {
+        long withAge = ageHistogram.total();
+        snapshot = withAge == 0
+                ? new Snapshot(studentCount, null, null, null)
+                : new Snapshot(studentCount, (double) sumOfAges / withAge, ageHistogram.minAge(), ageHistogram.maxAge());
+    }
+
+    public record Snapshot(long count, Double averageAge, Integer minAge, Integer maxAge) {
+    }
+
+    public record AgeBucket(int fromAge, int toAge, long count) {
+    }
+}
@@ -0,0 +1,203 @@
+package ru.hogwarts.school.service;
+
+import ru.hogwarts.school.dto.SearchHit;
+
+import java.util.*;
+
+/**
+ * Case-insensitive substring index over names: an inverted index from each trigram of a
+ * lower-cased name to the sorted ids of the names containing it. A query of three or more
+ * characters intersects the posting lists of its trigrams and checks the few remaining
+ * candidates; shorter queries scan all names. Not thread-safe.
+ */
+final class TrigramIndex {
+
+    private final Map<Long, Name> names = new HashMap<>();
+    private final Map<Long, LongList> postings = new HashMap<>();
+
+    int size() {
+        return names.size();
+    }
+
+    void put(long id, String name) {
+        remove(id);
+        if (name == null) {
+            return;
+        }
+        Name entry = new Name(name, fold(name));
+        names.put(id, entry);
+        for (long trigram : trigrams(entry.folded())) {
+            postings.computeIfAbsent(trigram, key -> new LongList()).insert(id);
+        }
+    }
+
+    void remove(long id) {
+        Name entry = names.remove(id);
+        if (entry == null) {
+            return;
+        }
+        for (long trigram : trigrams(entry.folded())) {
+            LongList ids = postings.get(trigram);
+            if (ids != null && ids.delete(id) && ids.size == 0) {
+                postings.remove(trigram);
+            }
+        }
+    }
+
+    /**
+     * Up to {@code limit} names containing {@code query}: exact matches first, then
+     * prefixes, then matches at the start of a word, then the rest; shorter names and lower ids first
+     * within each group.
+     */
+    List<SearchHit> search(String query, int limit) {
+        String folded = fold(query.trim());
+        if (folded.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        PriorityQueue<Match> best = new PriorityQueue<>(Comparator.reverseOrder());
+        if (folded.length() < 3) {
+            names.forEach((id, name) -> offer(best, limit, id, name, folded));
+        } else {
+            List<LongList> lists = new ArrayList<>();
+            for (long trigram : trigrams(folded)) {
+                LongList ids = postings.get(trigram);
+                if (ids == null) {
+                    return List.of();
+                }
+                lists.add(ids);
+            }
+            lists.sort(Comparator.comparingInt(ids -> ids.size));
+            LongList smallest = lists.get(0);
+            int[] cursors = new int[lists.size()];
+            candidates:
+            for (int i = 0; i < smallest.size; i++) {
+                long id = smallest.values[i];
+                for (int j = 1; j < lists.size(); j++) {
+                    LongList ids = lists.get(j);
+                    cursors[j] = ids.seek(cursors[j], id);
+                    if (cursors[j] == ids.size) {
+                        break candidates;
+                    }
+                    if (ids.values[cursors[j]] != id) {
+                        continue candidates;
+                    }
+                }
+                offer(best, limit, id, names.get(id), folded);
+            }
+        }
+        Match[] matches = best.toArray(new Match[0]);
+        Arrays.sort(matches);
+        List<SearchHit> hits = new ArrayList<>(matches.length);
+        for (Match match : matches) {
+            hits.add(new SearchHit(match.id(), names.get(match.id()).original()));
+        }
+        return hits;
+    }
+
+    private static void offer(PriorityQueue<Match> best, int limit, long id, Name entry, String query) {
+        String name = entry.folded();
+        int position = name.indexOf(query);
+        if (position < 0) {
+            return;
+        }
+        int rank;
+        if (name.length() == query.length()) {
+            rank = 0;
+        } else if (position == 0) {
+            rank = 1;
+        } else if (!Character.isLetterOrDigit(name.charAt(position - 1))) {
+            rank = 2;
+        } else {
+            rank = 3;
+        }
+        Match match = new Match(rank, name.length(), id);
+        if (best.size() < limit) {
+            best.add(match);
+        } else if (match.compareTo(best.peek()) < 0) {
+            best.poll();
+            best.add(match);
+        }
+    }
+
+    static String fold(String text) {
+        char[] chars = text.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = Character.toLowerCase(chars[i]);
+        }
+        return new String(chars);
+    }
+
+    private static Set<Long> trigrams(String folded) {
+        Set<Long> trigrams = new HashSet<>();
+        for (int i = 0; i + 3 <= folded.length(); i++) {
+            trigrams.add(((long) folded.charAt(i) << 32) | ((long) folded.charAt(i + 1) << 16) | folded.charAt(i + 2));
+        }
+        return trigrams;
+    }
+
+    private record Name(String original, String folded) {
+    }
+
+    private record Match(int rank, int length, long id) implements Comparable<Match> {
+
+        @Override
+        public int compareTo(Match other) {
+            int byRank = Integer.compare(rank, other.rank);
+            if (byRank != 0) {
+                return byRank;
+            }
+            int byLength = Integer.compare(length, other.length);
+            return byLength != 0 ? byLength : Long.compare(id, other.id);
+        }
+    }
+
+    /**
+     * A sorted set of ids; new ids are usually the largest, so inserts are mostly appends.
+     */
+    private static final class LongList {
+
+        private long[] values = new long[4];
+        private int size;
+
+        void insert(long id) {
+            int position = size > 0 && values[size - 1] < id ? size : Arrays.binarySearch(values, 0, size, id);
+            if (position >= 0 && position < size) {
+                return;
+            }
+            int insertAt = position >= 0 ? position : -position - 1;
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            System.arraycopy(values, insertAt, values, insertAt + 1, size - insertAt);
+            values[insertAt] = id;
+            size++;
+        }
+
+        boolean delete(long id) {
+            int position = Arrays.binarySearch(values, 0, size, id);
+            if (position < 0) {
+                return false;
+            }
+            System.arraycopy(values, position + 1, values, position, size - position - 1);
+            size--;
+            return true;
+        }
+
+        /**
+         * The position of the first id not less than {@code id}, searching forward from {@code from}
+         * with doubling steps, as intersections visit ids in increasing order.
+         */
+        int seek(int from, long id) {
+            int step = 1;
+            int low = from;
+            int high = from;
+            while (high < size && values[high] < id) {
+                low = high + 1;
+                high += step;
+                step <<= 1;
+            }
+            int position = Arrays.binarySearch(values, low, Math.min(high + 1, size), id);
+            return position >= 0 ? position : -position - 1;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package ru.hogwarts.school.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.system.JavaVersion;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Thread factories for the background pools of the services.
+ */
+final class WorkerThreads {
+
+    private static final Logger logger = LoggerFactory.getLogger(WorkerThreads.class);
+
+    private WorkerThreads() {
+    }
+
+    static ThreadFactory daemon(String prefix) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Virtual threads when {@code virtual} is set and the runtime supports them, daemon platform threads otherwise.
+     */
+    static ThreadFactory of(String prefix, boolean virtual) {
+        if (!virtual) {
+            return daemon(prefix);
+        }
+        if (!JavaVersion.getJavaVersion().isEqualOrNewerThan(JavaVersion.TWENTY_ONE)) {
+            logger.warn("Virtual threads need Java 21, {} threads use platform threads", prefix);
+            return daemon(prefix);
+        }
+        return new VirtualThreadTaskExecutor(prefix).getVirtualThreadFactory();
+    }
+}
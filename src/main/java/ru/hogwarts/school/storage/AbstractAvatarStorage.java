@@ -0,0 +1,114 @@
+package ru.hogwarts.school.storage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.hogwarts.school.repository.AvatarRepository;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reference counting shared by the storage backends. Content is referenced by every {@code Avatar}
+ * row with the same content hash, and by stores whose transaction has not completed yet.
+ */
+public abstract class AbstractAvatarStorage implements AvatarStorage {
+
+    private static final Logger logger = LoggerFactory.getLogger(AbstractAvatarStorage.class);
+    private static final int LOCK_STRIPES = 64;
+
+    private final AvatarRepository avatarRepository;
+    private final Object[] locks = new Object[LOCK_STRIPES];
+    private final Map<String, Integer> pending = new ConcurrentHashMap<>();
+
+    protected AbstractAvatarStorage(AvatarRepository avatarRepository) {
+        this.avatarRepository = avatarRepository;
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    @Override
+    public StoredAvatar store(InputStream content, long size, int inlineLimit) throws IOException {
+        return store(content, size, inlineLimit, false);
+    }
+
+    @Override
+    public StoredAvatar storePinned(InputStream content, long size, int inlineLimit) throws IOException {
+        return store(content, size, inlineLimit, true);
+    }
+
+    @Override
+    public void unpin(String hash) {
+        synchronized (lockFor(hash)) {
+            pending.computeIfPresent(hash, (key, count) -> count == 1 ? null : count - 1);
+        }
+        release(hash);
+    }
+
+    @Override
+    public void release(String hash) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    deleteIfUnreferenced(hash);
+                }
+            });
+        } else {
+            deleteIfUnreferenced(hash);
+        }
+    }
+
+    /**
+     * Marks freshly stored (or deduplicated) content as referenced until the current transaction
+     * completes, or until {@link #unpin(String)} when {@code pinned}. Must be called under the same lock
+     * that {@link #delete(String)} checks {@link #isPending(String)} under, so a concurrent release cannot
+     * remove it in between.
+     */
+    protected void markPending(String hash, boolean pinned) {
+        if (pinned) {
+            pending.merge(hash, 1, Integer::sum);
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        pending.merge(hash, 1, Integer::sum);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                pending.computeIfPresent(hash, (key, count) -> count == 1 ? null : count - 1);
+            }
+        });
+    }
+
+    protected boolean isPending(String hash) {
+        return pending.containsKey(hash);
+    }
+
+    protected Object lockFor(String hash) {
+        return locks[Math.floorMod(hash.hashCode(), locks.length)];
+    }
+
+    protected abstract StoredAvatar store(InputStream content, long size, int inlineLimit, boolean pinned)
+            throws IOException;
+
+    protected abstract void delete(String hash) throws IOException;
+
+    private void deleteIfUnreferenced(String hash) {
+        synchronized (lockFor(hash)) {
+            if (isPending(hash) || avatarRepository.countByContentHash(hash) > 0) {
+                return;
+            }
+            try {
+                delete(hash);
+            } catch (IOException e) {
+                logger.warn("Failed to delete unreferenced avatar {}", hash, e);
+            }
+        }
+    }
+}
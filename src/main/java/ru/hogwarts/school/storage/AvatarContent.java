@@ -0,0 +1,35 @@
+package ru.hogwarts.school.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * Read access to a stored avatar image, independent of the storage backend.
+ */
+public interface AvatarContent {
+
+    long size() throws IOException;
+
+    InputStream openStream() throws IOException;
+
+    /**
+     * Writes {@code count} bytes starting at {@code position} to the target channel.
+     */
+    void transferTo(long position, long count, WritableByteChannel target) throws IOException;
+
+    /**
+     * The file holding exactly this content, when the backend keeps one per image.
+     */
+    default Optional<Path> file() {
+        return Optional.empty();
+    }
+
+    default byte[] readAllBytes() throws IOException {
+        try (InputStream is = openStream()) {
+            return is.readAllBytes();
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package ru.hogwarts.school.storage;
+
+import org.springframework.core.io.AbstractResource;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Exposes stored avatar content as a {@link org.springframework.core.io.Resource}, so that
+ * Spring MVC can serve it with range support.
+ */
+public class AvatarContentResource extends AbstractResource {
+
+    private final AvatarContent content;
+
+    public AvatarContentResource(AvatarContent content) {
+        this.content = content;
+    }
+
+    @Override
+    public boolean exists() {
+        return true;
+    }
+
+    @Override
+    public long contentLength() throws IOException {
+        return content.size();
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        return content.openStream();
+    }
+
+    @Override
+    public String getDescription() {
+        return "Avatar content [" + content + "]";
+    }
+}
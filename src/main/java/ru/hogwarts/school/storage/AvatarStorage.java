@@ -0,0 +1,47 @@
+package ru.hogwarts.school.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Optional;
+
+/**
+ * Content-addressed storage for avatar images. Originals are keyed by the SHA-256 of their bytes;
+ * derived images (thumbnails) are stored as numbered variants of an original.
+ * The backend is chosen with {@code avatar.storage.type}.
+ */
+public interface AvatarStorage {
+
+    /**
+     * Stores the content, computing its hash while reading it. Content that is already stored is not
+     * written again. {@code size} is the expected length, or -1 if unknown.
+     */
+    StoredAvatar store(InputStream content, long size, int inlineLimit) throws IOException;
+
+    /**
+     * Like {@link #store}, but the content stays referenced until {@link #unpin(String)} rather than until
+     * the current transaction completes. For content stored on another thread than the one that saves the
+     * rows referring to it.
+     */
+    StoredAvatar storePinned(InputStream content, long size, int inlineLimit) throws IOException;
+
+    /**
+     * Drops a reference taken by {@link #storePinned}; the content is then deleted unless an {@code Avatar}
+     * row or another pending store still refers to it.
+     */
+    void unpin(String hash);
+
+    Optional<AvatarContent> open(String hash) throws IOException;
+
+    void storeVariant(String hash, int variant, byte[] content) throws IOException;
+
+    Optional<AvatarContent> openVariant(String hash, int variant) throws IOException;
+
+    /**
+     * Deletes the content and its variants once the current transaction commits, unless an
+     * {@code Avatar} row still refers to it.
+     */
+    void release(String hash);
+
+    record StoredAvatar(String hash, long size, byte[] inlineData, String location) {
+    }
+}
@@ -0,0 +1,64 @@
+package ru.hogwarts.school.storage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+import static java.nio.file.StandardOpenOption.CREATE_NEW;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Copies an uploaded avatar to disk in a single pass, computing its size, SHA-256
+ * and (for small files) an inline copy of the bytes along the way. A single heap buffer
+ * per upload is read into and written from directly, without per-chunk copies.
+ */
+public final class AvatarTransfer {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private AvatarTransfer() {
+    }
+
+    public static Result copy(InputStream source, Path target, int inlineLimit) throws IOException {
+        MessageDigest digest = sha256();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        ByteArrayOutputStream inline = inlineLimit > 0 ? new ByteArrayOutputStream() : null;
+        long size = 0;
+        try (FileChannel out = FileChannel.open(target, CREATE_NEW, WRITE)) {
+            int read;
+            while ((read = source.read(buffer)) != -1) {
+                size += read;
+                if (inline != null) {
+                    if (size > inlineLimit) {
+                        inline = null;
+                    } else {
+                        inline.write(buffer, 0, read);
+                    }
+                }
+                digest.update(buffer, 0, read);
+                ByteBuffer chunk = ByteBuffer.wrap(buffer, 0, read);
+                while (chunk.hasRemaining()) {
+                    out.write(chunk);
+                }
+            }
+        }
+        return new Result(size, HexFormat.of().formatHex(digest.digest()), inline == null ? null : inline.toByteArray());
+    }
+
+    public static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public record Result(long size, String sha256, byte[] inlineData) {
+    }
+}
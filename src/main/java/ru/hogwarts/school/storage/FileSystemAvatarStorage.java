@@ -0,0 +1,107 @@
+package ru.hogwarts.school.storage;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.hogwarts.school.repository.AvatarRepository;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.UUID;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/**
+ * Keeps one file per image under {@code <avatars folder>/<hash[0..2]>/<hash[2..4]>/<hash>},
+ * with variants next to it as {@code <hash>-<variant>.png}.
+ */
+@Component
+@ConditionalOnProperty(name = "avatar.storage.type", havingValue = "filesystem", matchIfMissing = true)
+public class FileSystemAvatarStorage extends AbstractAvatarStorage {
+
+    private final Path root;
+
+    public FileSystemAvatarStorage(@Value("${path.to.avatars.folder}") String avatarsDir,
+                                   AvatarRepository avatarRepository) {
+        super(avatarRepository);
+        this.root = Path.of(avatarsDir.trim());
+    }
+
+    @Override
+    protected StoredAvatar store(InputStream content, long size, int inlineLimit, boolean pinned) throws IOException {
+        Path tempDir = root.resolve(".tmp");
+        Files.createDirectories(tempDir);
+        Path tempFile = tempDir.resolve(UUID.randomUUID() + ".upload");
+        try {
+            AvatarTransfer.Result transfer = AvatarTransfer.copy(content, tempFile, inlineLimit);
+            String hash = transfer.sha256();
+            Path target = resolve(hash);
+            synchronized (lockFor(hash)) {
+                if (Files.exists(target)) {
+                    Files.delete(tempFile);
+                } else {
+                    Files.createDirectories(target.getParent());
+                    Files.move(tempFile, target, ATOMIC_MOVE);
+                }
+                markPending(hash, pinned);
+            }
+            return new StoredAvatar(hash, transfer.size(), transfer.inlineData(), target.toString());
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    @Override
+    public Optional<AvatarContent> open(String hash) {
+        Path file = resolve(hash);
+        return Files.exists(file) ? Optional.of(new FileAvatarContent(file)) : Optional.empty();
+    }
+
+    @Override
+    public void storeVariant(String hash, int variant, byte[] content) throws IOException {
+        Path target = variantPath(hash, variant);
+        Path tempFile = target.resolveSibling(target.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(target.getParent());
+            Files.write(tempFile, content);
+            Files.move(tempFile, target, REPLACE_EXISTING, ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    @Override
+    public Optional<AvatarContent> openVariant(String hash, int variant) {
+        Path file = variantPath(hash, variant);
+        return Files.exists(file) ? Optional.of(new FileAvatarContent(file)) : Optional.empty();
+    }
+
+    @Override
+    protected void delete(String hash) throws IOException {
+        if (isPending(hash)) {
+            return;
+        }
+        Path file = resolve(hash);
+        if (Files.isDirectory(file.getParent())) {
+            try (DirectoryStream<Path> variants = Files.newDirectoryStream(file.getParent(), hash + "-*.png")) {
+                for (Path variant : variants) {
+                    Files.deleteIfExists(variant);
+                }
+            }
+        }
+        Files.deleteIfExists(file);
+    }
+
+    private Path resolve(String hash) {
+        return root.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash);
+    }
+
+    private Path variantPath(String hash, int variant) {
+        return resolve(hash).resolveSibling(hash + "-" + variant + ".png");
+    }
+}
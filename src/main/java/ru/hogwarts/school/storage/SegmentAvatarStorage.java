@@ -0,0 +1,512 @@
+package ru.hogwarts.school.storage;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.hogwarts.school.repository.AvatarRepository;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Packs avatars into large append-only segment files read through {@link MappedByteBuffer}s.
+ * <p>
+ * Every record is {@code magic:int type:byte keyLength:short dataLength:int crc:int key data};
+ * the magic number is written last and the CRC covers data and key, so a record torn by a crash
+ * is recognised and ignored on startup, when the in-memory offset index is rebuilt by replaying
+ * the segments in order. Replacing or deleting a key leaves the old record behind; sealed segments
+ * that are mostly dead are compacted in the background by copying their live records forward.
+ */
+@Component
+@ConditionalOnProperty(name = "avatar.storage.type", havingValue = "segment")
+public class SegmentAvatarStorage extends AbstractAvatarStorage {
+
+    private static final Logger logger = LoggerFactory.getLogger(SegmentAvatarStorage.class);
+
+    private static final int MAGIC = 0x41565431;
+    private static final byte PUT = 1;
+    private static final byte DELETE = 2;
+    private static final int HEADER_SIZE = 15;
+    private static final int HASH_KEY_LENGTH = 64;
+    private static final int CHUNK_SIZE = 64 * 1024;
+    private static final String LOCATION_PREFIX = "segment:";
+    private static final String STAGING_PREFIX = "upload-";
+    private static final int IN_MEMORY_STAGING_LIMIT = 1024 * 1024;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final double compactionThreshold;
+    private final Map<String, Location> index = new ConcurrentHashMap<>();
+    private final Map<String, Set<Integer>> variants = new ConcurrentHashMap<>();
+    private final List<Segment> segments = new ArrayList<>();
+    private final ScheduledExecutorService compactor;
+    private Segment active;
+
+    public SegmentAvatarStorage(@Value("${avatar.storage.segment.dir:${path.to.avatars.folder}/segments}") String directory,
+                                @Value("${avatar.storage.segment.size-bytes:268435456}") int segmentSize,
+                                @Value("${avatar.storage.segment.compaction-threshold:0.5}") double compactionThreshold,
+                                @Value("${avatar.storage.segment.compaction-interval-seconds:300}") long compactionInterval,
+                                AvatarRepository avatarRepository) throws IOException {
+        super(avatarRepository);
+        this.directory = Path.of(directory.trim());
+        this.segmentSize = segmentSize;
+        this.compactionThreshold = compactionThreshold;
+        recover();
+        this.compactor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "avatar-segment-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        compactor.scheduleWithFixedDelay(this::compactQuietly, compactionInterval, compactionInterval, TimeUnit.SECONDS);
+    }
+
+    @Override
+    protected StoredAvatar store(InputStream content, long size, int inlineLimit, boolean pinned) throws IOException {
+        if (size < 0) {
+            throw new IOException("Segment storage needs the content length up front");
+        }
+        long recordSize = HEADER_SIZE + HASH_KEY_LENGTH + size;
+        if (recordSize > segmentSize) {
+            throw new IOException("Avatar of " + size + " bytes does not fit into a segment of " + segmentSize + " bytes");
+        }
+        try (StagedContent staged = stage(content, (int) size)) {
+            synchronized (this) {
+                if (!index.containsKey(staged.hash)) {
+                    byte[] key = staged.hash.getBytes(StandardCharsets.US_ASCII);
+                    Segment segment = reserve((int) recordSize);
+                    int recordOffset = segment.writePosition;
+                    staged.copyTo(segment.slice(recordOffset + HEADER_SIZE + key.length, (int) size));
+                    staged.crc.update(key);
+                    commit(segment, recordOffset, PUT, key, (int) size, (int) staged.crc.getValue());
+                }
+                markPending(staged.hash, pinned);
+            }
+            byte[] inlineData = inlineLimit > 0 && size <= inlineLimit ? staged.readAllBytes() : null;
+            return new StoredAvatar(staged.hash, size, inlineData, LOCATION_PREFIX + staged.hash);
+        }
+    }
+
+    @Override
+    public Optional<AvatarContent> open(String hash) {
+        return openKey(hash);
+    }
+
+    /**
+     * Thumbnails are built asynchronously and may finish after their original was deleted; such a
+     * variant is not written, since nothing would ever delete it and it would count as live bytes.
+     */
+    @Override
+    public synchronized void storeVariant(String hash, int variant, byte[] content) throws IOException {
+        if (!index.containsKey(hash)) {
+            return;
+        }
+        byte[] key = variantKey(hash, variant).getBytes(StandardCharsets.US_ASCII);
+        append(PUT, key, ByteBuffer.wrap(content));
+    }
+
+    @Override
+    public Optional<AvatarContent> openVariant(String hash, int variant) {
+        return openKey(variantKey(hash, variant));
+    }
+
+    @Override
+    protected synchronized void delete(String hash) throws IOException {
+        if (isPending(hash)) {
+            return;
+        }
+        for (int variant : variants.getOrDefault(hash, Set.of())) {
+            deleteKey(variantKey(hash, variant));
+        }
+        deleteKey(hash);
+    }
+
+    public synchronized void compact() throws IOException {
+        for (Segment segment : List.copyOf(segments)) {
+            if (segment == active || segment.liveBytes >= compactionThreshold * segment.writePosition) {
+                continue;
+            }
+            boolean oldest = segment == segments.get(0);
+            int position = 0;
+            while (position < segment.writePosition) {
+                SegmentRecord record = readRecord(segment, position);
+                Location location = index.get(record.key());
+                if (record.type() == PUT && location != null
+                        && location.segment() == segment && location.recordOffset() == position) {
+                    append(PUT, record.keyBytes(), segment.slice(record.dataOffset(), record.dataLength()));
+                } else if (record.type() == DELETE && !oldest && location == null) {
+                    append(DELETE, record.keyBytes(), ByteBuffer.allocate(0));
+                }
+                position += record.size();
+            }
+            segments.remove(segment);
+            segment.channel.close();
+            Files.delete(segment.path);
+            logger.info("Compacted avatar segment {}", segment.path);
+        }
+    }
+
+    @PreDestroy
+    public synchronized void close() throws IOException {
+        compactor.shutdownNow();
+        for (Segment segment : segments) {
+            segment.buffer.force();
+            segment.channel.close();
+        }
+    }
+
+    private void compactQuietly() {
+        try {
+            compact();
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Avatar segment compaction failed", e);
+        }
+    }
+
+    private Optional<AvatarContent> openKey(String key) {
+        Location location = index.get(key);
+        if (location == null) {
+            return Optional.empty();
+        }
+        return Optional.of(new MappedAvatarContent(location.segment().slice(location.dataOffset(), location.length())));
+    }
+
+    private void deleteKey(String key) throws IOException {
+        if (index.containsKey(key)) {
+            append(DELETE, key.getBytes(StandardCharsets.US_ASCII), ByteBuffer.allocate(0));
+        }
+    }
+
+    private void append(byte type, byte[] key, ByteBuffer data) throws IOException {
+        int recordSize = HEADER_SIZE + key.length + data.remaining();
+        if (recordSize > segmentSize) {
+            throw new IOException("Record of " + recordSize + " bytes does not fit into a segment of " + segmentSize + " bytes");
+        }
+        Segment segment = reserve(recordSize);
+        int recordOffset = segment.writePosition;
+        int dataLength = data.remaining();
+        segment.buffer.put(recordOffset + HEADER_SIZE + key.length, data.duplicate(), data.position(), dataLength);
+        CRC32 crc = new CRC32();
+        crc.update(data.duplicate());
+        crc.update(key);
+        commit(segment, recordOffset, type, key, dataLength, (int) crc.getValue());
+    }
+
+    private void commit(Segment segment, int recordOffset, byte type, byte[] key, int dataLength, int crc) {
+        MappedByteBuffer buffer = segment.buffer;
+        buffer.put(recordOffset + HEADER_SIZE, key);
+        buffer.put(recordOffset + 4, type);
+        buffer.putShort(recordOffset + 5, (short) key.length);
+        buffer.putInt(recordOffset + 7, dataLength);
+        buffer.putInt(recordOffset + 11, crc);
+        buffer.putInt(recordOffset, MAGIC);
+        int recordSize = HEADER_SIZE + key.length + dataLength;
+        buffer.force(recordOffset, recordSize);
+        segment.writePosition += recordSize;
+        apply(segment, recordOffset, type, new String(key, StandardCharsets.US_ASCII), dataLength, recordSize);
+    }
+
+    private void apply(Segment segment, int recordOffset, byte type, String key, int dataLength, int recordSize) {
+        Location previous;
+        if (type == PUT) {
+            previous = index.put(key, new Location(segment, recordOffset,
+                    recordOffset + HEADER_SIZE + key.length(), dataLength, recordSize));
+            segment.liveBytes += recordSize;
+            trackVariant(key, true);
+        } else {
+            previous = index.remove(key);
+            trackVariant(key, false);
+        }
+        if (previous != null) {
+            previous.segment().liveBytes -= previous.recordSize();
+        }
+    }
+
+    private void trackVariant(String key, boolean present) {
+        int separator = key.indexOf('-');
+        if (separator < 0) {
+            return;
+        }
+        String hash = key.substring(0, separator);
+        int variant = Integer.parseInt(key.substring(separator + 1));
+        if (present) {
+            variants.computeIfAbsent(hash, h -> ConcurrentHashMap.newKeySet()).add(variant);
+        } else {
+            variants.computeIfPresent(hash, (h, set) -> {
+                set.remove(variant);
+                return set.isEmpty() ? null : set;
+            });
+        }
+    }
+
+    /**
+     * Reads an upload outside the storage lock, so a slow client never holds up other writers. Small
+     * uploads are kept in memory, larger ones are spooled to a temporary file next to the segments.
+     */
+    private StagedContent stage(InputStream content, int size) throws IOException {
+        MessageDigest digest = AvatarTransfer.sha256();
+        CRC32 crc = new CRC32();
+        byte[] chunk = new byte[Math.max(1, Math.min(CHUNK_SIZE, size))];
+        StagedContent staged = size <= IN_MEMORY_STAGING_LIMIT
+                ? new StagedContent(new byte[size], null, crc)
+                : new StagedContent(null, Files.createTempFile(directory, STAGING_PREFIX, ".tmp"), crc);
+        try (FileChannel file = staged.file == null ? null : FileChannel.open(staged.file, WRITE)) {
+            int written = 0;
+            int read;
+            while ((read = content.read(chunk)) != -1) {
+                if (written + read > size) {
+                    throw new IOException("Avatar is larger than the declared " + size + " bytes");
+                }
+                if (file == null) {
+                    System.arraycopy(chunk, 0, staged.bytes, written, read);
+                } else {
+                    ByteBuffer buffer = ByteBuffer.wrap(chunk, 0, read);
+                    while (buffer.hasRemaining()) {
+                        file.write(buffer);
+                    }
+                }
+                digest.update(chunk, 0, read);
+                crc.update(chunk, 0, read);
+                written += read;
+            }
+            if (written != size) {
+                throw new IOException("Expected " + size + " bytes but got " + written);
+            }
+        } catch (IOException | RuntimeException e) {
+            staged.close();
+            throw e;
+        }
+        staged.hash = HexFormat.of().formatHex(digest.digest());
+        return staged;
+    }
+
+    private Segment reserve(int recordSize) throws IOException {
+        if (active == null || active.capacity() - active.writePosition < recordSize) {
+            long id = active == null ? 1 : active.id + 1;
+            active = Segment.open(directory.resolve(String.format("segment-%08d.dat", id)), id, segmentSize);
+            segments.add(active);
+        }
+        return active;
+    }
+
+    private void recover() throws IOException {
+        Files.createDirectories(directory);
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, STAGING_PREFIX + "*.tmp")) {
+            for (Path staged : stream) {
+                Files.deleteIfExists(staged);
+            }
+        }
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "segment-*.dat")) {
+            stream.forEach(files::add);
+        }
+        files.sort(Comparator.comparingLong(SegmentAvatarStorage::segmentId));
+        for (Path file : files) {
+            Segment segment = Segment.open(file, segmentId(file), 0);
+            segments.add(segment);
+            int position = 0;
+            SegmentRecord record;
+            while ((record = readValidRecord(segment, position)) != null) {
+                apply(segment, position, record.type(), record.key(), record.dataLength(), record.size());
+                position += record.size();
+            }
+            segment.writePosition = position;
+            active = segment;
+        }
+        logger.info("Recovered {} avatar records from {} segments in {}", index.size(), segments.size(), directory);
+    }
+
+    private SegmentRecord readValidRecord(Segment segment, int position) {
+        MappedByteBuffer buffer = segment.buffer;
+        if (position + HEADER_SIZE > segment.capacity() || buffer.getInt(position) != MAGIC) {
+            return null;
+        }
+        byte type = buffer.get(position + 4);
+        int keyLength = buffer.getShort(position + 5) & 0xFFFF;
+        int dataLength = buffer.getInt(position + 7);
+        if ((type != PUT && type != DELETE) || keyLength == 0 || dataLength < 0
+                || (long) position + HEADER_SIZE + keyLength + dataLength > segment.capacity()) {
+            return null;
+        }
+        SegmentRecord record = readRecord(segment, position);
+        CRC32 crc = new CRC32();
+        crc.update(segment.slice(record.dataOffset(), dataLength));
+        crc.update(record.keyBytes());
+        return (int) crc.getValue() == buffer.getInt(position + 11) ? record : null;
+    }
+
+    private SegmentRecord readRecord(Segment segment, int position) {
+        MappedByteBuffer buffer = segment.buffer;
+        byte type = buffer.get(position + 4);
+        int keyLength = buffer.getShort(position + 5) & 0xFFFF;
+        int dataLength = buffer.getInt(position + 7);
+        byte[] key = new byte[keyLength];
+        buffer.get(position + HEADER_SIZE, key);
+        return new SegmentRecord(type, key, position + HEADER_SIZE + keyLength, dataLength);
+    }
+
+    private static long segmentId(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring("segment-".length(), name.length() - ".dat".length()));
+    }
+
+    private static String variantKey(String hash, int variant) {
+        return hash + "-" + variant;
+    }
+
+    private record Location(Segment segment, int recordOffset, int dataOffset, int length, int recordSize) {
+    }
+
+    private record SegmentRecord(byte type, byte[] keyBytes, int dataOffset, int dataLength) {
+
+        String key() {
+            return new String(keyBytes, StandardCharsets.US_ASCII);
+        }
+
+        int size() {
+            return HEADER_SIZE + keyBytes.length + dataLength;
+        }
+    }
+
+    private static final class Segment {
+        private final long id;
+        private final Path path;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private int writePosition;
+        private long liveBytes;
+
+        private Segment(long id, Path path, FileChannel channel, MappedByteBuffer buffer) {
+            this.id = id;
+            this.path = path;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+
+        static Segment open(Path path, long id, int minimumSize) throws IOException {
+            FileChannel channel = FileChannel.open(path, CREATE, READ, WRITE);
+            long size = Math.max(channel.size(), minimumSize);
+            return new Segment(id, path, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+        }
+
+        int capacity() {
+            return buffer.capacity();
+        }
+
+        ByteBuffer slice(int offset, int length) {
+            return buffer.slice(offset, length);
+        }
+    }
+
+    private static final class StagedContent implements Closeable {
+        private final byte[] bytes;
+        private final Path file;
+        private final CRC32 crc;
+        private String hash;
+
+        private StagedContent(byte[] bytes, Path file, CRC32 crc) {
+            this.bytes = bytes;
+            this.file = file;
+            this.crc = crc;
+        }
+
+        void copyTo(ByteBuffer target) throws IOException {
+            if (file == null) {
+                target.put(bytes);
+                return;
+            }
+            try (FileChannel channel = FileChannel.open(file, READ)) {
+                while (target.hasRemaining()) {
+                    if (channel.read(target) < 0) {
+                        throw new EOFException("Staged avatar " + file + " is shorter than expected");
+                    }
+                }
+            }
+        }
+
+        byte[] readAllBytes() throws IOException {
+            return file == null ? bytes : Files.readAllBytes(file);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (file != null) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    private record MappedAvatarContent(ByteBuffer content) implements AvatarContent {
+
+        @Override
+        public long size() {
+            return content.remaining();
+        }
+
+        @Override
+        public InputStream openStream() {
+            ByteBuffer view = content.duplicate();
+            return new InputStream() {
+                @Override
+                public int read() {
+                    return view.hasRemaining() ? view.get() & 0xFF : -1;
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    if (!view.hasRemaining()) {
+                        return -1;
+                    }
+                    int count = Math.min(len, view.remaining());
+                    view.get(b, off, count);
+                    return count;
+                }
+
+                @Override
+                public int available() {
+                    return view.remaining();
+                }
+            };
+        }
+
+        @Override
+        public void transferTo(long position, long count, WritableByteChannel target) throws IOException {
+            ByteBuffer view = content.duplicate();
+            view.position((int) position);
+            view.limit((int) (position + count));
+            while (view.hasRemaining()) {
+                target.write(view);
+            }
+        }
+
+        @Override
+        public byte[] readAllBytes() {
+            byte[] bytes = new byte[content.remaining()];
+            content.duplicate().get(bytes);
+            return bytes;
+        }
+    }
+}
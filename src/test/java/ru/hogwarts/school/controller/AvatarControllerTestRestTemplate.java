@@ -0,0 +1,294 @@
+package ru.hogwarts.school.controller;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import ru.hogwarts.school.dto.AvatarImportReport;
+import ru.hogwarts.school.dto.AvatarImportResult;
+import ru.hogwarts.school.model.Avatar;
+import ru.hogwarts.school.model.Student;
+import ru.hogwarts.school.repository.AvatarRepository;
+import ru.hogwarts.school.repository.StudentRepository;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+
+@SpringBootTest(webEnvironment = RANDOM_PORT, properties = {
+        "avatar.import.max-entry-size=1024",
+        "path.to.avatars.folder=${java.io.tmpdir}/avatar-controller-test"
+})
+public class AvatarControllerTestRestTemplate {
+
+    private static final int MAX_ENTRY_SIZE = 1024;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private StudentRepository studentRepository;
+
+    @Autowired
+    private AvatarRepository avatarRepository;
+
+    @BeforeEach
+    @AfterEach
+    public void clearDatabase() {
+        avatarRepository.deleteAll();
+        studentRepository.deleteAll();
+    }
+
+    @Test
+    void shouldImportArchive() throws IOException {
+        Student harry = studentRepository.save(new Student("Harry Potter", 17));
+        Student ron = studentRepository.save(new Student("Ron Weasley", 17));
+        Map<String, byte[]> files = new LinkedHashMap<>();
+        files.put(harry.getId() + ".png", image(100, 1));
+        files.put("photos/" + ron.getId() + ".jpg", image(200, 2));
+
+        AvatarImportReport report = importArchive(zip(files, Map.of())).getBody();
+
+        assertEquals(2, report.total());
+        assertEquals(2, report.imported());
+        assertEquals(0, report.failed());
+        Avatar harryAvatar = avatarRepository.findByStudentId(harry.getId()).orElseThrow();
+        assertEquals(100L, harryAvatar.getFileSize());
+        assertEquals(MediaType.IMAGE_PNG_VALUE, harryAvatar.getMediaType());
+        Avatar ronAvatar = avatarRepository.findByStudentId(ron.getId()).orElseThrow();
+        assertEquals(200L, ronAvatar.getFileSize());
+        assertEquals(MediaType.IMAGE_JPEG_VALUE, ronAvatar.getMediaType());
+    }
+
+    @Test
+    void shouldReportBadEntries() throws IOException {
+        Student harry = studentRepository.save(new Student("Harry Potter", 17));
+        long missingId = harry.getId() + 1000;
+        Map<String, byte[]> files = new LinkedHashMap<>();
+        files.put("portrait.png", image(100, 1));
+        files.put(missingId + ".png", image(100, 2));
+        files.put(harry.getId() + ".png", image(100, 3));
+
+        AvatarImportReport report = importArchive(zip(files, Map.of())).getBody();
+
+        assertEquals(3, report.total());
+        assertEquals(1, report.imported());
+        Map<String, AvatarImportResult> results = byFileName(report);
+        assertEquals(AvatarImportResult.Status.FAILED, results.get("portrait.png").status());
+        assertEquals("Cannot tell which student the file belongs to", results.get("portrait.png").message());
+        assertEquals("Student not found", results.get(missingId + ".png").message());
+        assertEquals(AvatarImportResult.Status.IMPORTED, results.get(harry.getId() + ".png").status());
+        assertThat(avatarRepository.findAll()).extracting(avatar -> avatar.getStudent().getId())
+                .containsExactly(harry.getId());
+    }
+
+    @Test
+    void shouldRejectOversizedEntries() throws IOException {
+        Student harry = studentRepository.save(new Student("Harry Potter", 17));
+        Student ron = studentRepository.save(new Student("Ron Weasley", 17));
+        Student hermione = studentRepository.save(new Student("Hermione Granger", 17));
+        Map<String, byte[]> files = new LinkedHashMap<>();
+        files.put(harry.getId() + ".png", image(MAX_ENTRY_SIZE + 1, 1));
+        files.put(ron.getId() + ".png", image(4 * MAX_ENTRY_SIZE, 2));
+        files.put(hermione.getId() + ".png", image(MAX_ENTRY_SIZE, 3));
+
+        AvatarImportReport report = importArchive(zip(files, Map.of(ron.getId() + ".png", 100))).getBody();
+
+        Map<String, AvatarImportResult> results = byFileName(report);
+        assertEquals("File is larger than " + MAX_ENTRY_SIZE + " bytes", results.get(harry.getId() + ".png").message());
+        assertEquals("File is larger than " + MAX_ENTRY_SIZE + " bytes", results.get(ron.getId() + ".png").message());
+        assertEquals(AvatarImportResult.Status.IMPORTED, results.get(hermione.getId() + ".png").status());
+        assertThat(avatarRepository.findAll()).extracting(avatar -> avatar.getStudent().getId())
+                .containsExactly(hermione.getId());
+    }
+
+    @Test
+    void shouldServeRequestedRange() {
+        Student harry = studentRepository.save(new Student("Harry Potter", 17));
+        byte[] image = upload(harry.getId());
+
+        ResponseEntity<byte[]> response = download(harry.getId(), HttpHeaders.RANGE, "bytes=10-19");
+
+        assertEquals(HttpStatusCode.valueOf(206), response.getStatusCode());
+        assertEquals("bytes 10-19/" + image.length, response.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE));
+        assertArrayEquals(Arrays.copyOfRange(image, 10, 20), response.getBody());
+    }
+
+    @Test
+    void shouldRejectUnsatisfiableRange() {
+        Student harry = studentRepository.save(new Student("Harry Potter", 17));
+        byte[] image = upload(harry.getId());
+
+        ResponseEntity<byte[]> response = download(harry.getId(), HttpHeaders.RANGE, "bytes=" + image.length + "-");
+
+        assertEquals(HttpStatusCode.valueOf(416), response.getStatusCode());
+        assertEquals("bytes */" + image.length, response.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE));
+    }
+
+    @Test
+    void shouldServeRangeWhenIfRangeMatches() {
+        Student harry = studentRepository.save(new Student("Harry Potter", 17));
+        byte[] image = upload(harry.getId());
+        HttpHeaders current = download(harry.getId()).getHeaders();
+
+        ResponseEntity<byte[]> byETag = download(harry.getId(),
+                HttpHeaders.RANGE, "bytes=0-9", HttpHeaders.IF_RANGE, current.getETag());
+        ResponseEntity<byte[]> byDate = download(harry.getId(),
+                HttpHeaders.RANGE, "bytes=0-9", HttpHeaders.IF_RANGE, current.getFirst(HttpHeaders.LAST_MODIFIED));
+
+        assertEquals(HttpStatusCode.valueOf(206), byETag.getStatusCode());
+        assertArrayEquals(Arrays.copyOfRange(image, 0, 10), byETag.getBody());
+        assertEquals(HttpStatusCode.valueOf(206), byDate.getStatusCode());
+        assertArrayEquals(Arrays.copyOfRange(image, 0, 10), byDate.getBody());
+    }
+
+    @Test
+    void shouldServeWholeImageWhenIfRangeDoesNotMatch() {
+        Student harry = studentRepository.save(new Student("Harry Potter", 17));
+        byte[] image = upload(harry.getId());
+        HttpHeaders current = download(harry.getId()).getHeaders();
+        HttpHeaders later = new HttpHeaders();
+        later.setDate(HttpHeaders.IF_RANGE, current.getLastModified() + 1000);
+
+        ResponseEntity<byte[]> byETag = download(harry.getId(),
+                HttpHeaders.RANGE, "bytes=0-9", HttpHeaders.IF_RANGE, "\"stale\"");
+        ResponseEntity<byte[]> byDate = download(harry.getId(),
+                HttpHeaders.RANGE, "bytes=0-9", HttpHeaders.IF_RANGE, later.getFirst(HttpHeaders.IF_RANGE));
+
+        assertEquals(HttpStatusCode.valueOf(200), byETag.getStatusCode());
+        assertArrayEquals(image, byETag.getBody());
+        assertEquals(HttpStatusCode.valueOf(200), byDate.getStatusCode());
+        assertArrayEquals(image, byDate.getBody());
+    }
+
+    @Test
+    void shouldAnswerNotModifiedForCurrentETag() {
+        Student harry = studentRepository.save(new Student("Harry Potter", 17));
+        upload(harry.getId());
+        String eTag = download(harry.getId()).getHeaders().getETag();
+
+        ResponseEntity<byte[]> response = download(harry.getId(), HttpHeaders.IF_NONE_MATCH, eTag);
+
+        assertEquals(HttpStatusCode.valueOf(304), response.getStatusCode());
+        assertEquals(eTag, response.getHeaders().getETag());
+        assertNull(response.getBody());
+    }
+
+    @Test
+    void shouldRejectArchiveThatIsNotZip() {
+        ResponseEntity<AvatarImportReport> response = importArchive("not a zip".getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(HttpStatusCode.valueOf(400), response.getStatusCode());
+        assertNull(response.getBody());
+    }
+
+    private byte[] upload(long studentId) {
+        byte[] image = new byte[1000];
+        for (int i = 0; i < image.length; i++) {
+            image[i] = (byte) (i % 251);
+        }
+        MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
+        body.add("cover", new ByteArrayResource(image) {
+            @Override
+            public String getFilename() {
+                return "avatar.png";
+            }
+        });
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.MULTIPART_FORM_DATA);
+        ResponseEntity<String> response = restTemplate.postForEntity("/avatar/" + studentId + "/avatar",
+                new HttpEntity<>(body, headers), String.class);
+        assertEquals(HttpStatusCode.valueOf(200), response.getStatusCode());
+        return image;
+    }
+
+    /**
+     * Downloads the original image with the given header name and value pairs.
+     */
+    private ResponseEntity<byte[]> download(long studentId, String... headerPairs) {
+        HttpHeaders headers = new HttpHeaders();
+        for (int i = 0; i < headerPairs.length; i += 2) {
+            headers.set(headerPairs[i], headerPairs[i + 1]);
+        }
+        return restTemplate.exchange("/avatar/" + studentId + "/avatar/preview-avatar-file", HttpMethod.GET,
+                new HttpEntity<>(headers), byte[].class);
+    }
+
+    private ResponseEntity<AvatarImportReport> importArchive(byte[] archive) {
+        MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
+        body.add("archive", new ByteArrayResource(archive) {
+            @Override
+            public String getFilename() {
+                return "avatars.zip";
+            }
+        });
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.MULTIPART_FORM_DATA);
+        return restTemplate.postForEntity("/avatar/import", new HttpEntity<>(body, headers), AvatarImportReport.class);
+    }
+
+    private static Map<String, AvatarImportResult> byFileName(AvatarImportReport report) {
+        return report.entries().stream()
+                .collect(Collectors.toMap(AvatarImportResult::fileName, Function.identity()));
+    }
+
+    private static byte[] image(int size, int seed) {
+        byte[] image = new byte[size];
+        Arrays.fill(image, (byte) seed);
+        return image;
+    }
+
+    /**
+     * Builds an archive; {@code declaredSizes} overwrites the uncompressed size the central directory
+     * records for an entry, the way a hand-crafted archive can lie about it.
+     */
+    private static byte[] zip(Map<String, byte[]> files, Map<String, Integer> declaredSizes) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            for (Map.Entry<String, byte[]> file : files.entrySet()) {
+                zip.putNextEntry(new ZipEntry(file.getKey()));
+                zip.write(file.getValue());
+                zip.closeEntry();
+            }
+        }
+        byte[] archive = bytes.toByteArray();
+        for (int offset = 0; offset + 46 <= archive.length; offset++) {
+            if (archive[offset] != 'P' || archive[offset + 1] != 'K' || archive[offset + 2] != 1 || archive[offset + 3] != 2) {
+                continue;
+            }
+            int nameLength = (archive[offset + 28] & 0xFF) | (archive[offset + 29] & 0xFF) << 8;
+            String name = new String(archive, offset + 46, nameLength, StandardCharsets.UTF_8);
+            Integer declaredSize = declaredSizes.get(name);
+            if (declaredSize != null) {
+                for (int i = 0; i < 4; i++) {
+                    archive[offset + 24 + i] = (byte) (declaredSize >>> (8 * i));
+                }
+            }
+        }
+        return archive;
+    }
+}
@@ -8,12 +8,20 @@ import org.springframework.boot.test.web.client.TestRestTemplate;
 import org.springframework.boot.test.web.server.LocalServerPort;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.*;
+import ru.hogwarts.school.dto.FacultyStats;
+import ru.hogwarts.school.dto.RosterPage;
+import ru.hogwarts.school.dto.StudentSummary;
 import ru.hogwarts.school.model.Faculty;
 import ru.hogwarts.school.model.Student;
 import ru.hogwarts.school.repository.FacultyRepository;
 import ru.hogwarts.school.repository.StudentRepository;
+import ru.hogwarts.school.service.FacultyCatalog;
+import ru.hogwarts.school.service.StudentService;
 
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.*;
@@ -35,6 +43,12 @@ public class FacultyControllerTestRestTemplate {
     @Autowired
     private StudentRepository studentRepository;
 
+    @Autowired
+    private FacultyCatalog facultyCatalog;
+
+    @Autowired
+    private StudentService studentService;
+
     @LocalServerPort
     private int port;
 
@@ -70,6 +84,7 @@ public class FacultyControllerTestRestTemplate {
     void shouldGetFaculty() {
         Faculty faculty = new Faculty("name", "color");
         faculty = facultyRepository.save(faculty);
+        facultyCatalog.reload();
 
         ResponseEntity<Faculty> facultyResponseEntity = restTemplate.getForEntity(
                 "http://localhost:" + port + "/faculty/" + faculty.getId(),
@@ -95,6 +110,7 @@ public class FacultyControllerTestRestTemplate {
         student2.setFaculty(faculty);
         student1 = studentRepository.save(student1);
         student2 = studentRepository.save(student2);
+        facultyCatalog.reload();
 
 
         ResponseEntity<List<Student>> response = restTemplate.exchange("/faculty/" + faculty.getId() + "/student", HttpMethod.GET, null,
@@ -109,12 +125,71 @@ public class FacultyControllerTestRestTemplate {
         studentRepository.deleteAll();
     }
 
+    @Test
+    void shouldPageRosterByAge() {
+        Faculty faculty = facultyRepository.save(new Faculty("rosterName", "rosterColor"));
+        Student student1 = new Student("name1", 19);
+        Student student2 = new Student("name2", 17);
+        Student student3 = new Student("name3", 18);
+        for (Student student : List.of(student1, student2, student3)) {
+            student.setFaculty(faculty);
+            studentRepository.save(student);
+        }
+        facultyCatalog.reload();
+
+        ResponseEntity<RosterPage> firstPage = restTemplate.getForEntity(
+                "/faculty/" + faculty.getId() + "/roster?sort=age&limit=2", RosterPage.class);
+
+        assertThat(firstPage.getBody().items()).extracting(StudentSummary::name).containsExactly("name2", "name3");
+        assertNotNull(firstPage.getBody().nextCursor());
+
+        ResponseEntity<RosterPage> lastPage = restTemplate.getForEntity(
+                "/faculty/" + faculty.getId() + "/roster?sort=age&limit=2&cursor=" + firstPage.getBody().nextCursor(),
+                RosterPage.class);
+
+        assertThat(lastPage.getBody().items()).extracting(StudentSummary::name).containsExactly("name1");
+        assertNull(lastPage.getBody().nextCursor());
+        studentRepository.deleteAll();
+    }
+
+    @Test
+    void shouldRecountFacultyStatsWhenStudentMoves() {
+        Faculty first = restTemplate.postForObject("/faculty", new Faculty("statsFirst", "red"), Faculty.class);
+        Faculty second = restTemplate.postForObject("/faculty", new Faculty("statsSecond", "green"), Faculty.class);
+        Student moving = new Student("name1", 15);
+        moving.setFaculty(first);
+        moving = studentService.createStudent(moving);
+        Student staying = new Student("name2", 17);
+        staying.setFaculty(first);
+        studentService.createStudent(staying);
+
+        Map<Long, FacultyStats> before = facultyStats();
+
+        assertEquals(before.get(first.getId()).studentCount(), 2);
+        assertThat(before.get(first.getId()).averageAge()).isEqualTo(16.0);
+        assertThat(before.get(first.getId()).minAge()).isEqualTo(15);
+        assertThat(before.get(first.getId()).maxAge()).isEqualTo(17);
+        assertEquals(before.get(second.getId()).studentCount(), 0);
+        assertNull(before.get(second.getId()).averageAge());
+
+        moving.setFaculty(second);
+        studentService.editStudent(moving);
+        Map<Long, FacultyStats> after = facultyStats();
+
+        assertEquals(after.get(first.getId()).studentCount(), 1);
+        assertThat(after.get(first.getId()).averageAge()).isEqualTo(17.0);
+        assertEquals(after.get(second.getId()).studentCount(), 1);
+        assertThat(after.get(second.getId()).averageAge()).isEqualTo(15.0);
+        studentRepository.deleteAll();
+    }
+
     @Test
     void shouldFindFaculties() {
         Faculty faculty1 = new Faculty("name1", "color1");
         Faculty faculty2 = new Faculty("name1", "color1");
         faculty1 = facultyRepository.save(faculty1);
         faculty2 = facultyRepository.save(faculty2);
+        facultyCatalog.reload();
 
 
         ResponseEntity<List<Faculty>> response = restTemplate.exchange("/faculty?name=name1&color=color1", HttpMethod.GET, null,
@@ -176,4 +251,12 @@ public class FacultyControllerTestRestTemplate {
 
         assertThat(facultyRepository.findById(faculty.getId())).isNotPresent();
     }
+
+    private Map<Long, FacultyStats> facultyStats() {
+        ResponseEntity<List<FacultyStats>> response = restTemplate.exchange("/faculty/stats", HttpMethod.GET, null,
+                new ParameterizedTypeReference<List<FacultyStats>>() {
+                });
+        assertEquals(response.getStatusCode(), HttpStatusCode.valueOf(200));
+        return response.getBody().stream().collect(Collectors.toMap(FacultyStats::facultyId, Function.identity()));
+    }
 }
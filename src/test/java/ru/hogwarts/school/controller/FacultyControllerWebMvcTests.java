@@ -91,6 +91,7 @@ public class FacultyControllerWebMvcTests {
         faculty.setStudents(studentsOfFaculty);
 
         when(facultyService.findFaculty(facultyId)).thenReturn(faculty);
+        when(facultyService.findStudentsOfFaculty(facultyId)).thenReturn(studentsOfFaculty);
 
         ResultActions perform = mockMvc.perform(get("/faculty/{id}/student", facultyId));
 
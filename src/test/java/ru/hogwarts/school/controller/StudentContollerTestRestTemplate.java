@@ -1,5 +1,6 @@
 package ru.hogwarts.school.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -9,15 +10,26 @@ import org.springframework.boot.test.web.client.TestRestTemplate;
 import org.springframework.boot.test.web.server.LocalServerPort;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import ru.hogwarts.school.dto.CursorPage;
+import ru.hogwarts.school.dto.LookupResult;
+import ru.hogwarts.school.dto.SearchHit;
+import ru.hogwarts.school.dto.StudentBatchItem;
+import ru.hogwarts.school.dto.StudentBatchReport;
 import ru.hogwarts.school.model.Faculty;
 import ru.hogwarts.school.model.Student;
 import ru.hogwarts.school.repository.FacultyRepository;
 import ru.hogwarts.school.repository.StudentRepository;
 
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.zip.GZIPInputStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -40,6 +52,9 @@ public class StudentContollerTestRestTemplate {
         @Autowired
         private FacultyRepository facultyRepository;
 
+        @Autowired
+        private ObjectMapper objectMapper;
+
         @LocalServerPort
         private int port;
 
@@ -134,6 +149,140 @@ public class StudentContollerTestRestTemplate {
 
     }
 
+    @Test
+    void shouldCreateStudentsInBatch() {
+        List<StudentBatchItem> items = List.of(
+                new StudentBatchItem(null, "name1", 15),
+                new StudentBatchItem(null, "", 16),
+                new StudentBatchItem(null, "name3", 17));
+
+        ResponseEntity<StudentBatchReport> response = restTemplate.postForEntity("/student/batch", items,
+                StudentBatchReport.class);
+
+        StudentBatchReport report = response.getBody();
+        assertEquals(response.getStatusCode(), HttpStatusCode.valueOf(200));
+        assertEquals(report.saved(), 2);
+        assertEquals(report.failed(), 1);
+        assertThat(report.items().get(1).error()).isNotNull();
+        assertThat(studentRepository.findById(report.items().get(0).id())).get()
+                .extracting(Student::getName).isEqualTo("name1");
+        assertThat(studentRepository.findById(report.items().get(2).id())).get()
+                .extracting(Student::getAge).isEqualTo(17);
+    }
+
+    @Test
+    void shouldScrollStudents() {
+        Student student1 = studentRepository.save(new Student("name1", 15));
+        Student student2 = studentRepository.save(new Student("name2", 16));
+        Student student3 = studentRepository.save(new Student("name3", 17));
+
+        ResponseEntity<CursorPage<Student>> firstPage = restTemplate.exchange("/student/scroll?limit=2", HttpMethod.GET, null,
+                new ParameterizedTypeReference<CursorPage<Student>>() {
+                });
+
+        assertThat(firstPage.getBody().items()).extracting(Student::getId)
+                .containsExactly(student1.getId(), student2.getId());
+        assertEquals(firstPage.getBody().nextCursor(), student2.getId());
+
+        ResponseEntity<CursorPage<Student>> lastPage = restTemplate.exchange(
+                "/student/scroll?limit=2&after=" + firstPage.getBody().nextCursor(), HttpMethod.GET, null,
+                new ParameterizedTypeReference<CursorPage<Student>>() {
+                });
+
+        assertThat(lastPage.getBody().items()).extracting(Student::getId).containsExactly(student3.getId());
+        assertThat(lastPage.getBody().nextCursor()).isNull();
+    }
+
+    @Test
+    void shouldLookUpStudentsInRequestOrder() {
+        Student student1 = studentRepository.save(new Student("name1", 15));
+        Student student2 = studentRepository.save(new Student("name2", 16));
+        long missingId = student2.getId() + 1000;
+
+        ResponseEntity<LookupResult<Student>> response = restTemplate.exchange(
+                "/student?ids=" + student2.getId() + "," + missingId + "," + student1.getId(), HttpMethod.GET, null,
+                new ParameterizedTypeReference<LookupResult<Student>>() {
+                });
+
+        assertThat(response.getBody().items()).extracting(Student::getId)
+                .containsExactly(student2.getId(), student1.getId());
+        assertThat(response.getBody().missing()).containsExactly(missingId);
+    }
+
+    @Test
+    void shouldSearchStudentsByName() {
+        Student inner = restTemplate.postForObject("/student", new Student("Ann Quidditchson", 17), Student.class);
+        Student exact = restTemplate.postForObject("/student", new Student("Quidditch", 18), Student.class);
+        Student prefix = restTemplate.postForObject("/student", new Student("quidditchfan", 19), Student.class);
+
+        ResponseEntity<List<SearchHit>> hits = restTemplate.exchange("/student/search?q=QUIDDITCH", HttpMethod.GET, null,
+                new ParameterizedTypeReference<List<SearchHit>>() {
+                });
+
+        assertThat(hits.getBody()).extracting(SearchHit::id)
+                .containsSubsequence(exact.getId(), prefix.getId(), inner.getId());
+    }
+
+    @Test
+    void shouldExportStudentsAsNdjson() throws Exception {
+        Student student1 = studentRepository.save(new Student("name1", 15));
+        Student student2 = studentRepository.save(new Student("name2", 16));
+
+        ResponseEntity<String> response = restTemplate.getForEntity("/student/export", String.class);
+
+        assertEquals(response.getStatusCode(), HttpStatusCode.valueOf(200));
+        assertThat(response.getHeaders().getContentType().isCompatibleWith(MediaType.APPLICATION_NDJSON)).isTrue();
+        List<Student> exported = new ArrayList<>();
+        for (String line : response.getBody().split("\n")) {
+            if (!line.isBlank()) {
+                exported.add(objectMapper.readValue(line, Student.class));
+            }
+        }
+        assertThat(exported).extracting(Student::getId).containsExactly(student1.getId(), student2.getId());
+        assertThat(exported).extracting(Student::getName).containsExactly("name1", "name2");
+        assertThat(exported).extracting(Student::getAge).containsExactly(15, 16);
+    }
+
+    @Test
+    void shouldExportStudentsAsCsv() {
+        Faculty faculty = facultyRepository.save(new Faculty("exportFaculty", "red"));
+        Student student1 = new Student("Potter, \"Harry\"", 17);
+        student1.setFaculty(faculty);
+        student1 = studentRepository.save(student1);
+        Student student2 = studentRepository.save(new Student("Weasley", 16));
+
+        ResponseEntity<String> response = restTemplate.getForEntity("/student/export?format=csv", String.class);
+
+        assertEquals(response.getStatusCode(), HttpStatusCode.valueOf(200));
+        assertThat(response.getHeaders().getContentType().isCompatibleWith(MediaType.parseMediaType("text/csv"))).isTrue();
+        assertThat(response.getHeaders().getContentDisposition().getFilename()).isEqualTo("students.csv");
+        assertThat(response.getBody().split("\n")).containsExactly(
+                "id,name,age,facultyId",
+                student1.getId() + ",\"Potter, \"\"Harry\"\"\",17," + faculty.getId(),
+                student2.getId() + ",Weasley,16,");
+    }
+
+    @Test
+    void shouldExportStudentsGzipped() throws Exception {
+        Student student = studentRepository.save(new Student("name1", 15));
+
+        ResponseEntity<byte[]> response = restTemplate.getForEntity("/student/export?format=csv&gzip=true", byte[].class);
+
+        assertEquals(response.getStatusCode(), HttpStatusCode.valueOf(200));
+        assertThat(response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(response.getBody()))) {
+            assertThat(new String(in.readAllBytes(), StandardCharsets.UTF_8))
+                    .isEqualTo("id,name,age,facultyId\n" + student.getId() + ",name1,15,\n");
+        }
+    }
+
+    @Test
+    void shouldRejectUnknownExportFormat() {
+        ResponseEntity<String> response = restTemplate.getForEntity("/student/export?format=xml", String.class);
+
+        assertEquals(response.getStatusCode(), HttpStatusCode.valueOf(400));
+    }
+
     @Test
     void shouldGetFacultyOfStudent() {
         Faculty faculty = new Faculty("testName", "testColor");
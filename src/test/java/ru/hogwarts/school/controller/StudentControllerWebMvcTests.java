@@ -11,12 +11,16 @@ import org.springframework.test.web.servlet.ResultActions;
 import ru.hogwarts.school.model.Faculty;
 import ru.hogwarts.school.model.Student;
 import ru.hogwarts.school.service.AvatarService;
+import ru.hogwarts.school.service.StudentBatchService;
+import ru.hogwarts.school.service.StudentExportService;
 import ru.hogwarts.school.service.StudentService;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.LongStream;
 
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
@@ -38,6 +42,12 @@ public class StudentControllerWebMvcTests {
     @MockitoBean
     private AvatarService avatarService;
 
+    @MockitoBean
+    private StudentBatchService studentBatchService;
+
+    @MockitoBean
+    private StudentExportService studentExportService;
+
     @Test
     void shouldGetCreateStudent() throws Exception {
         Long studentId = 1L;
@@ -164,5 +174,19 @@ public class StudentControllerWebMvcTests {
         verify(studentService).deleteStudent(studentId);
     }
 
+    @Test
+    void shouldRejectTooManyViewIds() throws Exception {
+        String[] ids = LongStream.rangeClosed(1, StudentService.MAX_LOOKUP_IDS + 1)
+                .mapToObj(String::valueOf)
+                .toArray(String[]::new);
+
+        ResultActions perform = mockMvc.perform(
+                get("/student/view").param("ids", ids));
+
+        perform
+                .andExpect(status().isBadRequest());
+        verifyNoInteractions(studentService);
+    }
+
 
 }
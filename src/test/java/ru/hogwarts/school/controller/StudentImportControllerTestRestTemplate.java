@@ -0,0 +1,174 @@
+package ru.hogwarts.school.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import ru.hogwarts.school.dto.StudentImportReport;
+import ru.hogwarts.school.model.Faculty;
+import ru.hogwarts.school.model.Student;
+import ru.hogwarts.school.model.StudentImportChunk;
+import ru.hogwarts.school.model.StudentImportJob;
+import ru.hogwarts.school.repository.FacultyRepository;
+import ru.hogwarts.school.repository.StudentImportChunkRepository;
+import ru.hogwarts.school.repository.StudentImportJobRepository;
+import ru.hogwarts.school.repository.StudentRepository;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+
+@SpringBootTest(webEnvironment = RANDOM_PORT, properties = "student.import.chunk-size=2")
+public class StudentImportControllerTestRestTemplate {
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private StudentRepository studentRepository;
+
+    @Autowired
+    private FacultyRepository facultyRepository;
+
+    @Autowired
+    private StudentImportJobRepository jobRepository;
+
+    @Autowired
+    private StudentImportChunkRepository chunkRepository;
+
+    @BeforeEach
+    public void clearDatabase() {
+        studentRepository.deleteAll();
+    }
+
+    @Test
+    void shouldImportValidRowsAndRejectInvalidOnes() throws InterruptedException {
+        Faculty faculty = facultyRepository.save(new Faculty("Hufflepuff", "yellow"));
+        studentRepository.save(new Student("Cedric Diggory", 17));
+        String csv = """
+                name,age,faculty
+                Harry Potter,17
+                ,17
+                Ron Weasley,seventeen
+                Ginny Weasley,11
+                Harry Potter,18
+                "Weasley, Fred",19
+                Neville Longbottom,17,Durmstrang
+                Hannah Abbott,17,hufflepuff
+                Luna Lovegood
+                Cedric Diggory,17
+                """;
+
+        StudentImportReport report = awaitCompletion(upload(csv).getBody().jobId());
+
+        assertEquals(StudentImportJob.Status.COMPLETED, report.status());
+        assertEquals(10L, report.totalRows());
+        assertEquals(10, report.processedRows());
+        assertEquals(3, report.importedRows());
+        assertEquals(7, report.rejectedRows());
+        Map<Long, String> reasons = report.rejections().stream()
+                .collect(Collectors.toMap(StudentImportReport.Rejection::rowNumber, StudentImportReport.Rejection::reason));
+        assertThat(reasons).containsExactlyInAnyOrderEntriesOf(Map.of(
+                3L, "Name is required",
+                4L, "Age is not a number",
+                5L, "Age must be at least 16",
+                6L, "Duplicate name in file",
+                8L, "Unknown faculty Durmstrang",
+                10L, "Expected name,age[,faculty]",
+                11L, "A student with this name already exists"));
+
+        Map<String, Student> imported = studentRepository.findAll().stream()
+                .collect(Collectors.toMap(Student::getName, student -> student));
+        assertThat(imported).containsOnlyKeys("Cedric Diggory", "Harry Potter", "Weasley, Fred", "Hannah Abbott");
+        assertEquals(17, imported.get("Harry Potter").getAge());
+        assertEquals(faculty.getId(), imported.get("Hannah Abbott").getFaculty().getId());
+    }
+
+    @Test
+    void shouldResumeFromFirstUncommittedChunk() throws Exception {
+        Path source = Files.createTempFile("student-import", ".csv");
+        Files.writeString(source, """
+                name,age
+                Dean Thomas,17
+                Seamus Finnigan,17
+                Lavender Brown,16
+                Parvati Patil,16
+                Padma Patil,16
+                """, StandardCharsets.UTF_8);
+        StudentImportJob job = new StudentImportJob("roster.csv", source.toString());
+        job.setStatus(StudentImportJob.Status.FAILED);
+        job = jobRepository.save(job);
+        studentRepository.saveAll(List.of(new Student("Dean Thomas", 17), new Student("Seamus Finnigan", 17)));
+        chunkRepository.save(new StudentImportChunk(job, 0, 2, 2));
+
+        ResponseEntity<StudentImportReport> resumed = restTemplate.postForEntity(
+                "/student/import/" + job.getId() + "/resume", null, StudentImportReport.class);
+        StudentImportReport report = awaitCompletion(job.getId());
+
+        assertEquals(HttpStatusCode.valueOf(202), resumed.getStatusCode());
+        assertEquals(StudentImportJob.Status.COMPLETED, report.status());
+        assertEquals(5L, report.totalRows());
+        assertEquals(3, report.importedRows());
+        assertEquals(0, report.rejectedRows());
+        assertThat(studentRepository.findAll()).extracting(Student::getName).containsExactlyInAnyOrder(
+                "Dean Thomas", "Seamus Finnigan", "Lavender Brown", "Parvati Patil", "Padma Patil");
+        assertThat(chunkRepository.findCommittedChunkIndexes(job.getId())).containsExactlyInAnyOrder(0, 1, 2);
+        assertThat(source).doesNotExist();
+    }
+
+    @Test
+    void shouldNotRestartCompletedImport() throws InterruptedException {
+        long jobId = upload("name,age\nDraco Malfoy,17\n").getBody().jobId();
+        awaitCompletion(jobId);
+
+        ResponseEntity<StudentImportReport> resumed = restTemplate.postForEntity(
+                "/student/import/" + jobId + "/resume", null, StudentImportReport.class);
+
+        assertEquals(StudentImportJob.Status.COMPLETED, resumed.getBody().status());
+        assertEquals(0, resumed.getBody().rejectedRows());
+        assertThat(studentRepository.findAll()).extracting(Student::getName).containsExactly("Draco Malfoy");
+    }
+
+    private ResponseEntity<StudentImportReport> upload(String csv) {
+        MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
+        body.add("file", new ByteArrayResource(csv.getBytes(StandardCharsets.UTF_8)) {
+            @Override
+            public String getFilename() {
+                return "roster.csv";
+            }
+        });
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.MULTIPART_FORM_DATA);
+        ResponseEntity<StudentImportReport> response = restTemplate.postForEntity("/student/import",
+                new HttpEntity<>(body, headers), StudentImportReport.class);
+        assertEquals(HttpStatusCode.valueOf(202), response.getStatusCode());
+        return response;
+    }
+
+    private StudentImportReport awaitCompletion(long jobId) throws InterruptedException {
+        for (int attempt = 0; attempt < 100; attempt++) {
+            StudentImportReport report = restTemplate.getForObject("/student/import/" + jobId, StudentImportReport.class);
+            if (report.status() != StudentImportJob.Status.RUNNING) {
+                return report;
+            }
+            Thread.sleep(100);
+        }
+        throw new AssertionError("Student import " + jobId + " did not finish");
+    }
+}
@@ -0,0 +1,63 @@
+package ru.hogwarts.school.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.hogwarts.school.model.Faculty;
+import ru.hogwarts.school.repository.FacultyRepository;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class FacultyCatalogTest {
+
+    private FacultyRepository facultyRepository;
+    private FacultyCatalog catalog;
+
+    @BeforeEach
+    public void setUp() {
+        facultyRepository = mock(FacultyRepository.class);
+        catalog = new FacultyCatalog(facultyRepository);
+    }
+
+    @Test
+    void shouldApplyCommittedChangesAfterLoad() {
+        when(facultyRepository.findAll()).thenReturn(List.of(new Faculty(1L, "Gryffindor", "red")));
+        catalog.findAll();
+
+        catalog.onCreated(new Faculty(2L, "Slytherin", "green"));
+        catalog.onUpdated(new Faculty(1L, "Gryffindor", "red"), new Faculty(1L, "Gryffindor", "scarlet"));
+        catalog.onCreated(new Faculty(3L, "Ravenclaw", "blue"));
+        catalog.onDeleted(new Faculty(3L, "Ravenclaw", "blue"));
+
+        assertEquals(List.of(new Faculty(1L, "Gryffindor", "scarlet"), new Faculty(2L, "Slytherin", "green")),
+                catalog.findAll());
+        assertEquals(List.of(new Faculty(2L, "Slytherin", "green")), catalog.findByNameOrColor("SLYTHERIN", null));
+        assertEquals(List.of(), catalog.findByNameOrColor(null, "red"));
+    }
+
+    @Test
+    void shouldLoadChangesMadeBeforeFirstRead() {
+        when(facultyRepository.findAll()).thenReturn(List.of(new Faculty(1L, "Hufflepuff", "yellow")));
+
+        catalog.onCreated(new Faculty(1L, "Hufflepuff", "yellow"));
+
+        assertEquals(Optional.of(new Faculty(1L, "Hufflepuff", "yellow")), catalog.find(1L));
+        assertEquals(1, catalog.findAll().size());
+    }
+
+    @Test
+    void shouldPickUpWritesAroundServiceOnReload() {
+        when(facultyRepository.findAll()).thenReturn(List.of(new Faculty(1L, "Gryffindor", "red")));
+        catalog.findAll();
+        when(facultyRepository.findAll()).thenReturn(List.of(new Faculty(2L, "Slytherin", "green")));
+
+        catalog.reload();
+
+        assertEquals(Optional.empty(), catalog.find(1L));
+        assertEquals(List.of(new Faculty(2L, "Slytherin", "green")), catalog.findByNameOrColor("name", "Green"));
+    }
+}
@@ -0,0 +1,101 @@
+package ru.hogwarts.school.service;
+
+import org.junit.jupiter.api.Test;
+import ru.hogwarts.school.dto.SearchHit;
+import ru.hogwarts.school.repository.NameView;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class NameSearchIndexTest {
+
+    @Test
+    void shouldReplayChangesMadeWhileNamesAreLoaded() {
+        TestIndex index = new TestIndex();
+        index.loader = () -> {
+            index.put(3L, "Harry Hook");
+            index.remove(2L);
+            index.put(1L, "Harry James Potter");
+            return List.of(name(1L, "Harry Potter"), name(2L, "Harry Osborn"));
+        };
+
+        assertEquals(List.of(new SearchHit(3L, "Harry Hook"), new SearchHit(1L, "Harry James Potter")),
+                index.search("harry", 10));
+    }
+
+    @Test
+    void shouldReplayChangesOnRebuiltIndex() {
+        TestIndex index = new TestIndex();
+        index.loader = () -> List.of(name(1L, "Harry Potter"));
+        assertEquals(List.of(1L), ids(index.search("harry", 10)));
+
+        index.loader = () -> {
+            index.put(2L, "Harry Hook");
+            index.remove(1L);
+            return List.of(name(1L, "Harry Potter"));
+        };
+        index.rebuild();
+
+        assertEquals(List.of(2L), ids(index.search("harry", 10)));
+    }
+
+    @Test
+    void shouldApplyChangesAfterLoad() {
+        TestIndex index = new TestIndex();
+        index.loader = () -> List.of(name(1L, "Harry Potter"));
+        index.search("harry", 10);
+
+        index.put(1L, "Ronald Weasley");
+        index.put(2L, "Harry Hook");
+
+        assertEquals(List.of(2L), ids(index.search("harry", 10)));
+        assertEquals(List.of(1L), ids(index.search("ron", 10)));
+    }
+
+    @Test
+    void shouldKeepServingOldIndexWhenRebuildFails() {
+        TestIndex index = new TestIndex();
+        index.loader = () -> List.of(name(1L, "Harry Potter"));
+        index.search("harry", 10);
+        index.loader = () -> {
+            throw new IllegalStateException("Database is down");
+        };
+
+        assertThrows(IllegalStateException.class, index::rebuild);
+        index.put(2L, "Harry Hook");
+
+        assertEquals(List.of(2L, 1L), ids(index.search("harry", 10)));
+    }
+
+    private static List<Long> ids(List<SearchHit> hits) {
+        return hits.stream().map(SearchHit::id).toList();
+    }
+
+    private static NameView name(Long id, String name) {
+        return new NameView() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public String getName() {
+                return name;
+            }
+        };
+    }
+
+    private static final class TestIndex extends NameSearchIndex {
+
+        private Supplier<List<NameView>> loader = ArrayList::new;
+
+        @Override
+        protected List<NameView> loadNames() {
+            return loader.get();
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package ru.hogwarts.school.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import ru.hogwarts.school.model.Student;
+import ru.hogwarts.school.repository.StudentRepository;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class RecentStudentsTest {
+
+    private static final int CAPACITY = 3;
+
+    private StudentRepository studentRepository;
+    private RecentStudents recentStudents;
+
+    @BeforeEach
+    public void setUp() {
+        studentRepository = mock(StudentRepository.class);
+        recentStudents = new RecentStudents(studentRepository, CAPACITY);
+    }
+
+    @Test
+    void shouldKeepNewestStudentsWhenRingWrapsAround() {
+        when(studentRepository.findAllByOrderByIdDesc(PageRequest.of(0, CAPACITY))).thenReturn(List.of());
+        recentStudents.reload();
+
+        for (long id = 1; id <= 7; id++) {
+            recentStudents.onCreated(student(id));
+        }
+
+        assertEquals(List.of(7L, 6L, 5L), ids(recentStudents.latest(10)));
+        assertEquals(List.of(7L, 6L), ids(recentStudents.latest(2)));
+    }
+
+    @Test
+    void shouldReloadAfterDeletingBufferedStudent() {
+        when(studentRepository.findAllByOrderByIdDesc(PageRequest.of(0, CAPACITY)))
+                .thenReturn(List.of(student(3), student(2), student(1)))
+                .thenReturn(List.of(student(3), student(1)));
+        recentStudents.reload();
+
+        recentStudents.onDeleted(student(2));
+
+        assertEquals(List.of(3L, 1L), ids(recentStudents.latest(CAPACITY)));
+    }
+
+    @Test
+    void shouldNotReloadAfterDeletingStudentOutsideBuffer() {
+        when(studentRepository.findAllByOrderByIdDesc(PageRequest.of(0, CAPACITY)))
+                .thenReturn(List.of(student(4), student(3), student(2)))
+                .thenReturn(List.of());
+        recentStudents.reload();
+
+        recentStudents.onDeleted(student(1));
+
+        assertEquals(List.of(4L, 3L, 2L), ids(recentStudents.latest(CAPACITY)));
+    }
+
+    @Test
+    void shouldApplyUpdatesInPlace() {
+        when(studentRepository.findAllByOrderByIdDesc(PageRequest.of(0, CAPACITY)))
+                .thenReturn(List.of(student(2), student(1)));
+        recentStudents.reload();
+
+        recentStudents.onUpdated(student(1), new Student(1L, "renamed", 18));
+
+        assertEquals("renamed", recentStudents.latest(CAPACITY).get(1).getName());
+    }
+
+    @Test
+    void shouldKeepStudentsCreatedWhileReloading() {
+        when(studentRepository.findAllByOrderByIdDesc(PageRequest.of(0, CAPACITY)))
+                .thenReturn(List.of(student(1)))
+                .thenAnswer(invocation -> {
+                    recentStudents.onCreated(student(2));
+                    recentStudents.onCreated(student(3));
+                    return List.of(student(2), student(1));
+                });
+        recentStudents.reload();
+
+        recentStudents.reload();
+
+        assertEquals(List.of(3L, 2L, 1L), ids(recentStudents.latest(CAPACITY)));
+    }
+
+    @Test
+    void shouldReloadWhenStudentIsCreatedBeforeFirstLoad() {
+        when(studentRepository.findAllByOrderByIdDesc(PageRequest.of(0, CAPACITY)))
+                .thenReturn(List.of(student(1)));
+        recentStudents.onCreated(student(1));
+
+        assertEquals(List.of(1L), ids(recentStudents.latest(CAPACITY)));
+    }
+
+    private static Student student(long id) {
+        return new Student(id, "student " + id, 17);
+    }
+
+    private static List<Long> ids(List<Student> students) {
+        return students.stream().map(Student::getId).toList();
+    }
+}
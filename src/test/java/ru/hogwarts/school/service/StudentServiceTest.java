@@ -0,0 +1,53 @@
+package ru.hogwarts.school.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.hogwarts.school.dto.StudentFacultyView;
+import ru.hogwarts.school.repository.StudentRepository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class StudentServiceTest {
+
+    private StudentRepository studentRepository;
+    private StudentService studentService;
+
+    @BeforeEach
+    public void setUp() {
+        studentRepository = mock(StudentRepository.class);
+        studentService = new StudentService(studentRepository, mock(StudentStatistics.class),
+                mock(StudentChangePublisher.class), mock(RecentStudents.class), mock(StudentNameIndex.class));
+    }
+
+    @Test
+    void shouldReadViewsInChunksOfDistinctIds() {
+        stubViews(1, 1000);
+        stubViews(1001, 2000);
+        stubViews(2001, 2500);
+        List<Long> ids = new ArrayList<>(LongStream.iterate(2500, id -> id >= 1, id -> id - 1).boxed().toList());
+        ids.addAll(Arrays.asList(7L, null, 2500L));
+
+        List<StudentFacultyView> views = studentService.findStudentViews(ids);
+
+        assertEquals(LongStream.rangeClosed(1, 2500).boxed().toList(), views.stream().map(StudentFacultyView::id).toList());
+    }
+
+    @Test
+    void shouldNotQueryForNoIds() {
+        assertEquals(List.of(), studentService.findStudentViews(List.of()));
+    }
+
+    private void stubViews(long from, long to) {
+        when(studentRepository.findViewsByIdIn(LongStream.rangeClosed(from, to).boxed().toList()))
+                .thenReturn(LongStream.rangeClosed(from, to)
+                        .mapToObj(id -> new StudentFacultyView(id, "student " + id, 17, null, null, null))
+                        .toList());
+    }
+}
@@ -0,0 +1,117 @@
+package ru.hogwarts.school.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.hogwarts.school.model.Student;
+import ru.hogwarts.school.repository.StudentRepository;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class StudentStatisticsTest {
+
+    private StudentRepository studentRepository;
+    private StudentStatistics statistics;
+
+    @BeforeEach
+    public void setUp() {
+        studentRepository = mock(StudentRepository.class);
+        statistics = new StudentStatistics(studentRepository);
+    }
+
+    @Test
+    void shouldNotCountStudentCreatedBeforeFirstRead() {
+        when(studentRepository.count()).thenReturn(4L);
+        when(studentRepository.countGroupedByAge()).thenReturn(List.of(ages(15, 2), ages(20, 1), ages(30, 1)));
+
+        statistics.onCreated(new Student(4L, "created", 30));
+
+        assertEquals(new StudentStatistics.Snapshot(4, 20.0, 15, 30), statistics.snapshot());
+        assertEquals(2, statistics.countBetween(20, 30));
+        assertEquals(List.of(new StudentStatistics.AgeBucket(15, 24, 3), new StudentStatistics.AgeBucket(25, 34, 1)),
+                statistics.distribution(10));
+        assertEquals(30, statistics.percentile(100));
+    }
+
+    @Test
+    void shouldNotCountStudentDeletedBeforeFirstRead() {
+        when(studentRepository.countGroupedByAge()).thenReturn(List.of());
+
+        statistics.onDeleted(new Student(1L, "deleted", 15));
+
+        assertEquals(new StudentStatistics.Snapshot(0, null, null, null), statistics.snapshot());
+        assertEquals(0, statistics.countBetween(0, 100));
+    }
+
+    @Test
+    void shouldApplyChangesAfterLoad() {
+        when(studentRepository.count()).thenReturn(2L);
+        when(studentRepository.countGroupedByAge()).thenReturn(List.of(ages(15, 2)));
+        statistics.load();
+
+        statistics.onCreated(new Student(3L, "created", 18));
+        statistics.onUpdated(new Student(1L, "name", 15), new Student(1L, "name", 16));
+        statistics.onDeleted(new Student(2L, "deleted", 15));
+
+        assertEquals(new StudentStatistics.Snapshot(2, 17.0, 16, 18), statistics.snapshot());
+    }
+
+    @Test
+    void shouldReloadWhenStudentChangesDuringFirstLoad() {
+        when(studentRepository.count()).thenReturn(1L, 2L);
+        when(studentRepository.countGroupedByAge())
+                .thenAnswer(invocation -> {
+                    statistics.onCreated(new Student(2L, "created", 20));
+                    return List.of(ages(15, 1));
+                })
+                .thenReturn(List.of(ages(15, 1), ages(20, 1)));
+
+        assertEquals(new StudentStatistics.Snapshot(2, 17.5, 15, 20), statistics.snapshot());
+    }
+
+    @Test
+    void shouldKeepIncrementalStateWhenStudentChangesDuringReconciliation() {
+        when(studentRepository.count()).thenReturn(1L);
+        when(studentRepository.countGroupedByAge()).thenReturn(List.of(ages(15, 1)));
+        statistics.load();
+        when(studentRepository.countGroupedByAge()).thenAnswer(invocation -> {
+            statistics.onCreated(new Student(2L, "created", 20));
+            return List.of(ages(15, 1));
+        });
+
+        statistics.reconcile();
+
+        assertEquals(new StudentStatistics.Snapshot(2, 17.5, 15, 20), statistics.snapshot());
+    }
+
+    @Test
+    void shouldCountStudentsWithoutAgeOnlyInStudentCount() {
+        when(studentRepository.count()).thenReturn(3L);
+        when(studentRepository.countGroupedByAge()).thenReturn(List.of(ages(15, 1), ages(17, 1)));
+        statistics.load();
+
+        assertEquals(new StudentStatistics.Snapshot(3, 16.0, 15, 17), statistics.snapshot());
+
+        statistics.onDeleted(new Student(1L, "deleted", 15));
+        statistics.onDeleted(new Student(2L, "deleted", 17));
+
+        assertEquals(new StudentStatistics.Snapshot(1, null, null, null), statistics.snapshot());
+    }
+
+    private static StudentRepository.AgeCount ages(int age, long count) {
+        return new StudentRepository.AgeCount() {
+            @Override
+            public int getAge() {
+                return age;
+            }
+
+            @Override
+            public long getCount() {
+                return count;
+            }
+        };
+    }
+}
@@ -0,0 +1,146 @@
+package ru.hogwarts.school.service;
+
+import org.junit.jupiter.api.Test;
+import ru.hogwarts.school.dto.SearchHit;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class TrigramIndexTest {
+
+    @Test
+    void shouldRankExactThenPrefixThenWordStartThenInfix() {
+        TrigramIndex index = new TrigramIndex();
+        index.put(1, "Peter Pettigrew");
+        index.put(2, "Terry Boot");
+        index.put(3, "Potter");
+        index.put(4, "Ter");
+        index.put(5, "Ted Tonks");
+        index.put(6, "Luna Terwilliger");
+        index.put(7, "Teresa");
+
+        assertEquals(List.of(4L, 7L, 2L, 6L, 3L, 1L), ids(index.search("ter", 10)));
+    }
+
+    @Test
+    void shouldBreakTiesByLengthThenId() {
+        TrigramIndex index = new TrigramIndex();
+        index.put(3, "Hannah Abbott");
+        index.put(1, "Hannah Abbot");
+        index.put(2, "Hannah Abbott");
+
+        assertEquals(List.of(1L, 2L, 3L), ids(index.search("hannah", 10)));
+    }
+
+    @Test
+    void shouldSearchShortQueriesByScanning() {
+        TrigramIndex index = new TrigramIndex();
+        index.put(1, "Sally-Anne Perks");
+        index.put(2, "Al");
+        index.put(3, "Albus Dumbledore");
+        index.put(4, "Ron Weasley");
+
+        assertEquals(List.of(2L, 3L, 1L), ids(index.search("AL", 10)));
+        assertEquals(List.of(4L, 3L), ids(index.search("o", 2)));
+        assertEquals(List.of(), ids(index.search("  ", 10)));
+    }
+
+    @Test
+    void shouldMatchCaseInsensitivelyAndReturnOriginalNames() {
+        TrigramIndex index = new TrigramIndex();
+        index.put(1, "Harry POTTER");
+
+        assertEquals(List.of(new SearchHit(1L, "Harry POTTER")), index.search("rry pot", 10));
+        assertEquals(List.of(), index.search("harry potters", 10));
+    }
+
+    @Test
+    void shouldForgetRemovedAndReplacedNames() {
+        TrigramIndex index = new TrigramIndex();
+        index.put(1, "Harry Potter");
+        index.put(2, "Harry Hook");
+
+        index.remove(1);
+        assertEquals(List.of(2L), ids(index.search("harry", 10)));
+
+        index.put(1, "Ron Weasley");
+        index.put(1, "Ronald Weasley");
+        index.remove(2);
+        index.put(2, "Harry Hook");
+
+        assertEquals(2, index.size());
+        assertEquals(List.of(2L), ids(index.search("harry", 10)));
+        assertEquals(List.of(1L), ids(index.search("ronald", 10)));
+        assertEquals(List.of(1L), ids(index.search("ron", 10)));
+        assertEquals(List.of(), ids(index.search("ron weasley", 10)));
+    }
+
+    @Test
+    void shouldFindSameNamesAsScanningEveryName() {
+        Random random = new Random(42);
+        TrigramIndex index = new TrigramIndex();
+        Map<Long, String> names = new HashMap<>();
+        for (int i = 0; i < 5000; i++) {
+            long id = random.nextInt(20_000);
+            String name = randomName(random);
+            index.put(id, name);
+            names.put(id, name);
+        }
+        for (int i = 0; i < 1000; i++) {
+            long id = random.nextInt(20_000);
+            index.remove(id);
+            names.remove(id);
+        }
+
+        for (int i = 0; i < 300; i++) {
+            String name = randomName(random);
+            String query = name.substring(0, Math.min(name.length(), 1 + random.nextInt(4))).trim();
+            assertEquals(scan(names, query), ids(index.search(query, Integer.MAX_VALUE)), "query " + query);
+        }
+    }
+
+    private static List<Long> scan(Map<Long, String> names, String query) {
+        String folded = TrigramIndex.fold(query);
+        List<Map.Entry<Long, String>> matches = new ArrayList<>();
+        for (Map.Entry<Long, String> entry : names.entrySet()) {
+            if (TrigramIndex.fold(entry.getValue()).contains(folded)) {
+                matches.add(entry);
+            }
+        }
+        matches.sort(Comparator.<Map.Entry<Long, String>>comparingInt(entry -> rank(TrigramIndex.fold(entry.getValue()), folded))
+                .thenComparingInt(entry -> entry.getValue().length())
+                .thenComparingLong(Map.Entry::getKey));
+        return matches.stream().map(Map.Entry::getKey).toList();
+    }
+
+    private static int rank(String name, String query) {
+        int position = name.indexOf(query);
+        if (name.equals(query)) {
+            return 0;
+        }
+        if (position == 0) {
+            return 1;
+        }
+        return Character.isLetterOrDigit(name.charAt(position - 1)) ? 3 : 2;
+    }
+
+    private static String randomName(Random random) {
+        String letters = "abcdeHKLMN";
+        StringBuilder name = new StringBuilder();
+        int length = 3 + random.nextInt(8);
+        for (int i = 0; i < length; i++) {
+            name.append(i > 0 && random.nextInt(6) == 0 ? ' ' : letters.charAt(random.nextInt(letters.length())));
+        }
+        return name.toString();
+    }
+
+    private static List<Long> ids(List<SearchHit> hits) {
+        return hits.stream().map(SearchHit::id).toList();
+    }
+}
@@ -0,0 +1,209 @@
+package ru.hogwarts.school.storage;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SegmentAvatarStorageTest {
+
+    private static final int RECORD_OVERHEAD = 15 + 64;
+
+    @TempDir
+    private Path directory;
+
+    private SegmentAvatarStorage storage;
+
+    @AfterEach
+    public void closeStorage() throws IOException {
+        if (storage != null) {
+            storage.close();
+        }
+    }
+
+    @Test
+    void shouldRecoverStoredAvatarsAfterRestart() throws IOException {
+        storage = open(1024 * 1024);
+        byte[] first = content(1, 1000);
+        byte[] second = content(2, 2000);
+        String firstHash = store(first).hash();
+        String secondHash = store(second).hash();
+        storage.storeVariant(firstHash, 64, content(3, 100));
+        storage.delete(secondHash);
+
+        reopen(1024 * 1024);
+
+        assertArrayEquals(first, storage.open(firstHash).orElseThrow().readAllBytes());
+        assertArrayEquals(content(3, 100), storage.openVariant(firstHash, 64).orElseThrow().readAllBytes());
+        assertFalse(storage.open(secondHash).isPresent());
+    }
+
+    @Test
+    void shouldIgnoreTornRecordOnRecovery() throws IOException {
+        storage = open(1024 * 1024);
+        byte[] first = content(1, 1000);
+        byte[] second = content(2, 1000);
+        String firstHash = store(first).hash();
+        String secondHash = store(second).hash();
+        storage.close();
+        storage = null;
+
+        try (FileChannel channel = FileChannel.open(directory.resolve("segment-00000001.dat"), READ, WRITE)) {
+            int secondDataOffset = 2 * RECORD_OVERHEAD + first.length;
+            channel.write(ByteBuffer.wrap(new byte[]{(byte) ~second[0]}), secondDataOffset);
+        }
+        storage = open(1024 * 1024);
+
+        assertArrayEquals(first, storage.open(firstHash).orElseThrow().readAllBytes());
+        assertFalse(storage.open(secondHash).isPresent());
+
+        byte[] third = content(4, 500);
+        String thirdHash = store(third).hash();
+        reopen(1024 * 1024);
+        assertArrayEquals(third, storage.open(thirdHash).orElseThrow().readAllBytes());
+    }
+
+    @Test
+    void shouldCompactMostlyDeadSegment() throws IOException {
+        int segmentSize = 4 * (RECORD_OVERHEAD + 1000);
+        storage = open(segmentSize);
+        String first = store(content(1, 1000)).hash();
+        String second = store(content(2, 1000)).hash();
+        String third = store(content(3, 1000)).hash();
+        String fourth = store(content(4, 1000)).hash();
+        String fifth = store(content(5, 1000)).hash();
+        storage.delete(first);
+        storage.delete(second);
+        storage.delete(third);
+
+        storage.compact();
+
+        assertFalse(Files.exists(directory.resolve("segment-00000001.dat")));
+        assertArrayEquals(content(4, 1000), storage.open(fourth).orElseThrow().readAllBytes());
+        assertArrayEquals(content(5, 1000), storage.open(fifth).orElseThrow().readAllBytes());
+
+        reopen(segmentSize);
+        assertFalse(storage.open(first).isPresent());
+        assertFalse(storage.open(third).isPresent());
+        assertArrayEquals(content(4, 1000), storage.open(fourth).orElseThrow().readAllBytes());
+        assertArrayEquals(content(5, 1000), storage.open(fifth).orElseThrow().readAllBytes());
+    }
+
+    @Test
+    void shouldNotStoreVariantOfDeletedAvatar() throws IOException {
+        storage = open(1024 * 1024);
+        String hash = store(content(1, 1000)).hash();
+        storage.delete(hash);
+
+        storage.storeVariant(hash, 64, content(2, 100));
+
+        assertFalse(storage.openVariant(hash, 64).isPresent());
+        reopen(1024 * 1024);
+        assertFalse(storage.openVariant(hash, 64).isPresent());
+    }
+
+    @Test
+    void shouldStageLargeUploadsAndDeduplicate() throws IOException {
+        storage = open(8 * 1024 * 1024);
+        byte[] large = content(1, 3 * 1024 * 1024);
+
+        AvatarStorage.StoredAvatar stored = store(large);
+        long used = Files.size(directory.resolve("segment-00000001.dat"));
+        AvatarStorage.StoredAvatar duplicate = store(large);
+
+        assertEquals(stored.hash(), duplicate.hash());
+        assertArrayEquals(large, storage.open(stored.hash()).orElseThrow().readAllBytes());
+        assertEquals(used, Files.size(directory.resolve("segment-00000001.dat")));
+        try (DirectoryStream<Path> staged = Files.newDirectoryStream(directory, "upload-*.tmp")) {
+            assertFalse(staged.iterator().hasNext());
+        }
+    }
+
+    @Test
+    void shouldNotBlockOtherUploadsWhileReadingSlowUpload() throws Exception {
+        storage = open(1024 * 1024);
+        CountDownLatch reading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        InputStream slowUpload = new InputStream() {
+            @Override
+            public int read() throws IOException {
+                reading.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new InterruptedIOException();
+                }
+                return -1;
+            }
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<AvatarStorage.StoredAvatar> slow = executor.submit(() -> storage.store(slowUpload, 0, 0));
+            assertTrue(reading.await(5, TimeUnit.SECONDS));
+
+            byte[] fast = content(1, 100);
+            String fastHash = executor.submit(() -> store(fast).hash()).get(5, TimeUnit.SECONDS);
+            assertArrayEquals(fast, storage.open(fastHash).orElseThrow().readAllBytes());
+
+            release.countDown();
+            assertEquals(0, slow.get(5, TimeUnit.SECONDS).size());
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void shouldRejectUploadShorterThanDeclared() throws IOException {
+        storage = open(1024 * 1024);
+
+        IOException e = assertThrows(IOException.class,
+                () -> storage.store(new ByteArrayInputStream(content(1, 100)), 200, 0));
+
+        assertTrue(e.getMessage().contains("200"));
+        byte[] next = content(2, 100);
+        assertArrayEquals(next, storage.open(store(next).hash()).orElseThrow().readAllBytes());
+    }
+
+    private AvatarStorage.StoredAvatar store(byte[] content) throws IOException {
+        return storage.store(new ByteArrayInputStream(content), content.length, 0);
+    }
+
+    private void reopen(int segmentSize) throws IOException {
+        storage.close();
+        storage = open(segmentSize);
+    }
+
+    private SegmentAvatarStorage open(int segmentSize) throws IOException {
+        return new SegmentAvatarStorage(directory.toString(), segmentSize, 0.5, 3600, null);
+    }
+
+    private static byte[] content(int seed, int size) {
+        byte[] content = new byte[size];
+        new Random(seed).nextBytes(content);
+        return content;
+    }
+}